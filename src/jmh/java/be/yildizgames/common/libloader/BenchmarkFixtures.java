@@ -0,0 +1,133 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Files and directories used by the benchmarks.
+ *
+ * @author Grégory Van den Borre
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+        super();
+    }
+
+    /**
+     * Create a directory filled with fake libraries.
+     *
+     * @param directory Directory to fill, created if it does not exist.
+     * @param count Number of libraries to create.
+     * @param size Size of each library, in bytes.
+     * @param extension Library extension.
+     * @throws IOException If a file cannot be written.
+     */
+    static void createLibraries(final Path directory, final int count, final int size, final String extension) throws IOException {
+        Files.createDirectories(directory);
+        byte[] content = new byte[size];
+        for (int i = 0; i < count; i++) {
+            ThreadLocalRandom.current().nextBytes(content);
+            Files.write(directory.resolve("lib_" + i + extension), content);
+        }
+    }
+
+    /**
+     * Bundle the files of a directory in a jar, compressed, under a directory entry, as the natives are shipped.
+     *
+     * @param jar Jar file to create.
+     * @param source Directory whose files are bundled, not recursively.
+     * @param directory Name of the directory entry holding the files in the jar.
+     * @throws IOException If the jar cannot be written.
+     */
+    static void createJar(final Path jar, final Path source, final String directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(source)) {
+            files = list.filter(Files::isRegularFile).sorted().toList();
+        }
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry(directory + "/"));
+            out.closeEntry();
+            for (Path file : files) {
+                out.putNextEntry(new JarEntry(directory + "/" + file.getFileName()));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * Compile a small shared library with the system C compiler.
+     *
+     * @param directory Directory where the library is compiled.
+     * @param name Library file name.
+     * @return The compiled library.
+     * @throws IOException If the library cannot be compiled.
+     */
+    static Path compileLibrary(final Path directory, final String name) throws IOException {
+        Files.createDirectories(directory);
+        Path source = directory.resolve("benchmark.c");
+        Files.writeString(source, "int benchmark_value(void) { return 42; }\n");
+        Path library = directory.resolve(name);
+        Process process = new ProcessBuilder("cc", "-shared", "-fPIC", "-o", library.toString(), source.toString())
+                .inheritIO()
+                .start();
+        try {
+            if (!process.waitFor(1, TimeUnit.MINUTES) || process.exitValue() != 0) {
+                throw new IOException("Cannot compile " + library + ", a C compiler (cc) is required for this benchmark.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        return library;
+    }
+
+    /**
+     * Delete a directory and all its content.
+     *
+     * @param directory Directory to delete.
+     * @throws IOException If a file cannot be deleted.
+     */
+    static void delete(final Path directory) throws IOException {
+        if (Files.exists(directory)) {
+            try (Stream<Path> walk = Files.walk(directory)) {
+                for (Path p : walk.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(p);
+                }
+            }
+        }
+    }
+}
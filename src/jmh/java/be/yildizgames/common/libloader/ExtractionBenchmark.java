@@ -0,0 +1,127 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the extraction of a native directory, for a fresh destination and for an up to date one, from a plain
+ * directory and from a jar, read through the zip file system as the classpath natives are.
+ *
+ * @author Grégory Van den Borre
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ExtractionBenchmark {
+
+    private static final int FILES = 10;
+
+    private static final String JAR_DIRECTORY = "natives";
+
+    @Param({"65536", "1048576", "16777216"})
+    private int librarySize;
+
+    private Path source;
+
+    private Path jar;
+
+    private Path destination;
+
+    private Path upToDate;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.source = Files.createTempDirectory("libloader-source");
+        BenchmarkFixtures.createLibraries(this.source, FILES, this.librarySize, ".so");
+        this.upToDate = Files.createTempDirectory("libloader-up-to-date");
+        new NativeExtractor(this.upToDate).extract(this.source);
+        this.jar = Files.createTempFile("libloader-source", ".jar");
+        BenchmarkFixtures.createJar(this.jar, this.source, JAR_DIRECTORY);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() throws IOException {
+        this.destination = Files.createTempDirectory("libloader-destination");
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() throws IOException {
+        BenchmarkFixtures.delete(this.destination);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.delete(this.source);
+        BenchmarkFixtures.delete(this.upToDate);
+        Files.deleteIfExists(this.jar);
+    }
+
+    @Benchmark
+    public void extractFresh() throws IOException {
+        new NativeExtractor(this.destination).extract(this.source);
+    }
+
+    @Benchmark
+    public void extractUpToDate() throws IOException {
+        new NativeExtractor(this.upToDate).extract(this.source);
+    }
+
+    @Benchmark
+    public void extractFreshFromJar() throws IOException {
+        try (FileSystem fs = FileSystems.newFileSystem(this.jar)) {
+            new NativeExtractor(this.destination).extract(fs.getPath(JAR_DIRECTORY));
+        }
+    }
+
+    @Benchmark
+    public void extractUpToDateFromJar() throws IOException {
+        try (FileSystem fs = FileSystems.newFileSystem(this.jar)) {
+            new NativeExtractor(this.upToDate).extract(fs.getPath(JAR_DIRECTORY));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import be.yildizgames.common.os.OperatingSystem;
+import be.yildizgames.common.os.factory.OperatingSystems;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the loading of a real small library, compiled at setup with the system C compiler.
+ * The JVM never loads twice the same file, so every invocation loads a fresh copy under a new name, with a loader
+ * created and registered at setup, so only the lookup and the load are measured.
+ *
+ * @author Grégory Van den Borre
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 50)
+@Fork(1)
+public class LoadBenchmark {
+
+    private final OperatingSystem[] systems = OperatingSystems.getAll();
+
+    private Path root;
+
+    private Path compiled;
+
+    private Path libraries;
+
+    private String extension;
+
+    private NativeResourceLoader loader;
+
+    private String library;
+
+    private int invocation;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.root = Files.createTempDirectory("libloader-load");
+        NativeResourceLoader probe = NativeResourceLoader.inPath(this.root.toString(), this.systems);
+        this.extension = probe.libraryExtension;
+        this.libraries = Files.createDirectories(this.root.resolve(probe.directory));
+        this.compiled = BenchmarkFixtures.compileLibrary(this.root.resolve("build"), "libbenchmark" + this.extension);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() throws IOException {
+        this.invocation++;
+        this.library = "libbenchmark" + this.invocation;
+        Files.copy(this.compiled, this.libraries.resolve(this.library + this.extension), StandardCopyOption.REPLACE_EXISTING);
+        this.loader = NativeResourceLoader.inPath(this.root.toString(), this.systems).register();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.delete(this.root);
+    }
+
+    @Benchmark
+    public NativeResourceLoader loadLibrary() {
+        this.loader.loadLibrary(this.library);
+        return this.loader;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import be.yildizgames.common.os.OperatingSystem;
+import be.yildizgames.common.os.factory.OperatingSystems;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the loader creation and the library lookups, against directories of different sizes.
+ *
+ * @author Grégory Van den Borre
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmark {
+
+    private final OperatingSystem[] systems = OperatingSystems.getAll();
+
+    @Param({"10", "100", "1000"})
+    private int entries;
+
+    private Path root;
+
+    private NativeResourceLoader loader;
+
+    private NativeRegistry registry;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.root = Files.createTempDirectory("libloader-registry");
+        NativeResourceLoader probe = NativeResourceLoader.inPath(this.root.toString(), this.systems);
+        BenchmarkFixtures.createLibraries(this.root.resolve(probe.directory), this.entries, 16, probe.libraryExtension);
+        this.loader = NativeResourceLoader.inPath(this.root.toString(), this.systems);
+        this.loader.getLibPath("lib_0");
+        this.registry = new NativeRegistry(this.root.resolve(probe.directory), probe.libraryExtension);
+        this.registry.resolve("missing");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.delete(this.root);
+    }
+
+    /**
+     * Create a loader and resolve a first library, so the registration cost is included.
+     *
+     * @return The resolved path.
+     */
+    @Benchmark
+    public String inPathFirstLookup() {
+        return NativeResourceLoader.inPath(this.root.toString(), this.systems).getLibPath("lib_0");
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public String getLibPathHit() {
+        return this.loader.getLibPath("lib_1");
+    }
+
+    /**
+     * Look up a library that is not registered, through the registry, so the memoized miss is measured rather
+     * than the exception thrown by getLibPath.
+     *
+     * @return The empty resolution.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Optional<String> resolveMiss() {
+        return this.registry.resolve("missing");
+    }
+}
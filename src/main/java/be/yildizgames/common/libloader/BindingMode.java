@@ -0,0 +1,92 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Flags controlling how dlopen binds the symbols of a library, with their Linux values.
+ * One of {@link #LAZY} and {@link #NOW} must be given.
+ *
+ * @author Grégory Van den Borre
+ */
+public enum BindingMode {
+
+    /**
+     * RTLD_LAZY, functions are bound on their first call, so opening a library with many relocations is faster.
+     */
+    LAZY(0x1),
+
+    /**
+     * RTLD_NOW, all symbols are bound while opening, an undefined symbol makes the opening fail.
+     */
+    NOW(0x2),
+
+    /**
+     * RTLD_NOLOAD, do not load the library, only succeed if it is already loaded.
+     */
+    NOLOAD(0x4),
+
+    /**
+     * RTLD_GLOBAL, the library symbols are available to resolve the libraries loaded afterwards.
+     */
+    GLOBAL(0x100),
+
+    /**
+     * RTLD_NODELETE, the library is not unloaded when closed.
+     */
+    NODELETE(0x1000);
+
+    /**
+     * Flag value.
+     */
+    private final int flag;
+
+    BindingMode(final int flag) {
+        this.flag = flag;
+    }
+
+    /**
+     * Combine modes into dlopen flags, a mode given several times is only counted once.
+     *
+     * @param modes Modes to combine.
+     * @return The dlopen flags.
+     * @throws IllegalArgumentException If not exactly one of LAZY and NOW is given.
+     */
+    static int flags(final BindingMode... modes) {
+        Set<BindingMode> set = EnumSet.noneOf(BindingMode.class);
+        Collections.addAll(set, modes);
+        if (set.contains(LAZY) == set.contains(NOW)) {
+            throw new IllegalArgumentException("Exactly one of LAZY and NOW is required: " + set);
+        }
+        int result = 0;
+        for (BindingMode mode : set) {
+            result |= mode.flag;
+        }
+        return result;
+    }
+}
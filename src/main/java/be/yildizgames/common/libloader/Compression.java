@@ -0,0 +1,107 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Compression formats supported for the bundled natives, recognized by their file suffix.
+ * A compressed library is decompressed during the extraction and registered under its name without the suffix.
+ *
+ * @author Grégory Van den Borre
+ */
+enum Compression {
+
+    /**
+     * Not compressed, copied as is.
+     */
+    NONE("") {
+        @Override
+        InputStream decompress(final InputStream in) {
+            return in;
+        }
+    },
+
+    /**
+     * Gzip compressed, with a .gz suffix.
+     */
+    GZIP(".gz") {
+        @Override
+        InputStream decompress(final InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+    };
+
+    /**
+     * Size of the decompression buffer.
+     */
+    private static final int BUFFER_SIZE = 65536;
+
+    /**
+     * Suffix of the compressed files.
+     */
+    private final String suffix;
+
+    Compression(String suffix) {
+        this.suffix = suffix;
+    }
+
+    /**
+     * Find the compression of a file from its name.
+     *
+     * @param name File name.
+     * @return The file compression, NONE if not compressed.
+     */
+    static Compression of(final String name) {
+        for (Compression compression : values()) {
+            if (compression != NONE && name.endsWith(compression.suffix)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Provide the name of a file once decompressed.
+     *
+     * @param name Name of the file, with or without compression suffix.
+     * @return The name without compression suffix.
+     */
+    static String decompressedName(final String name) {
+        Compression compression = of(name);
+        return name.substring(0, name.length() - compression.suffix.length());
+    }
+
+    /**
+     * Wrap a stream to read it decompressed.
+     *
+     * @param in Compressed stream.
+     * @return The decompressed stream.
+     * @throws IOException If the stream header cannot be read.
+     */
+    abstract InputStream decompress(InputStream in) throws IOException;
+}
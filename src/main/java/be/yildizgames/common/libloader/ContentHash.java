@@ -0,0 +1,103 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Compute the content hash identifying a native library file.
+ *
+ * @author Grégory Van den Borre
+ */
+final class ContentHash {
+
+    /**
+     * Algorithm used to compute the hash.
+     */
+    private static final String ALGORITHM = "SHA-256";
+
+    private ContentHash() {
+        super();
+    }
+
+    /**
+     * Compute the hash of a file content.
+     *
+     * @param file File to hash, cannot be null.
+     * @return The hexadecimal representation of the file hash.
+     * @throws IOException If the file cannot be read.
+     */
+    static String of(final Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return of(in);
+        }
+    }
+
+    /**
+     * Compute the hash of a stream content, the stream is fully consumed but not closed.
+     *
+     * @param in Stream to hash, cannot be null.
+     * @return The hexadecimal representation of the stream hash.
+     * @throws IOException If the stream cannot be read.
+     */
+    static String of(final InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[65536];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return of(digest);
+    }
+
+    /**
+     * Complete a digest fed while the content was read for another purpose, such as a copy.
+     *
+     * @param digest Digest created by {@link #newDigest()}, reset once the hash is computed.
+     * @return The hexadecimal representation of the content hash.
+     */
+    static String of(final MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Create a digest computing the same hash as this class.
+     *
+     * @return A new digest.
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Detect the instruction set extensions supported by the current CPU.
+ * The flags are read from /proc/cpuinfo, on systems without it, no flag is detected and only the base libraries
+ * are used, unless the variant is forced with {@link CpuVariant#PROPERTY}.
+ *
+ * @author Grégory Van den Borre
+ */
+final class CpuFeatures {
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(CpuFeatures.class.getName());
+
+    /**
+     * File listing the CPU flags on Linux.
+     */
+    private static final Path CPU_INFO = Path.of("/proc/cpuinfo");
+
+    private CpuFeatures() {
+        super();
+    }
+
+    /**
+     * Provide the flags of the current CPU, detected once.
+     *
+     * @return The supported flags, empty if they cannot be detected.
+     */
+    static Set<String> current() {
+        return Holder.FLAGS;
+    }
+
+    /**
+     * Read the flags from a cpuinfo file.
+     *
+     * @param cpuInfo File to read.
+     * @return The flags of the first processor, empty if the file cannot be read.
+     */
+    static Set<String> read(final Path cpuInfo) {
+        if (!Files.isReadable(cpuInfo)) {
+            return Set.of();
+        }
+        try {
+            return parse(Files.readAllLines(cpuInfo));
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Cannot read cpu flags from {0}", cpuInfo);
+            return Set.of();
+        }
+    }
+
+    /**
+     * Extract the flags of the first processor, from the x86 'flags' line or the ARM 'Features' line.
+     *
+     * @param lines Content of a cpuinfo file.
+     * @return The flags, empty if none are listed.
+     */
+    static Set<String> parse(final List<String> lines) {
+        for (String line : lines) {
+            int separator = line.indexOf(':');
+            if (separator > 0) {
+                String key = line.substring(0, separator).trim();
+                if ("flags".equals(key) || "Features".equals(key)) {
+                    return Arrays.stream(line.substring(separator + 1).trim().split("\\s+"))
+                            .filter(f -> !f.isEmpty())
+                            .collect(Collectors.toUnmodifiableSet());
+                }
+            }
+        }
+        return Set.of();
+    }
+
+    /**
+     * Lazy holder, the detection is only done if variants are looked up.
+     */
+    private static final class Holder {
+
+        private static final Set<String> FLAGS = read(CPU_INFO);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Instruction set variants a native library can be built for.
+ * A variant is shipped in a sub directory of the operating system directory, for example linux64/avx2/libfoo.so,
+ * and is preferred over the base build, linux64/libfoo.so, when the current CPU supports it.
+ * Variants are declared from the fastest to the most compatible.
+ *
+ * @author Grégory Van den Borre
+ */
+public enum CpuVariant {
+
+    /**
+     * x86-64 AVX-512 (x86-64-v4 level).
+     */
+    AVX512("avx512", "avx512f", "avx512bw", "avx512cd", "avx512dq", "avx512vl"),
+
+    /**
+     * x86-64 AVX2 (x86-64-v3 level).
+     */
+    AVX2("avx2", "avx", "avx2", "bmi1", "bmi2", "fma"),
+
+    /**
+     * x86-64 SSE 4.2 (x86-64-v2 level).
+     */
+    SSE4("sse4", "sse4_1", "sse4_2", "popcnt", "ssse3");
+
+    /**
+     * System property to override the detection, set to a variant directory to use that variant and the
+     * slower ones whatever the CPU supports, or to "none" to only use the base libraries.
+     */
+    public static final String PROPERTY = "yildiz.libloader.cpu.variant";
+
+    /**
+     * Value of the override property to disable the variants.
+     */
+    private static final String NONE = "none";
+
+    /**
+     * Name of the sub directory holding the libraries built for this variant.
+     */
+    private final String directory;
+
+    /**
+     * CPU flags, as listed in /proc/cpuinfo, required to run this variant.
+     */
+    private final Set<String> flags;
+
+    CpuVariant(final String directory, final String... flags) {
+        this.directory = directory;
+        this.flags = Set.of(flags);
+    }
+
+    /**
+     * @return The name of the sub directory holding the libraries built for this variant.
+     */
+    public String getDirectory() {
+        return this.directory;
+    }
+
+    /**
+     * Check if a CPU can run this variant.
+     *
+     * @param cpuFlags Flags supported by the CPU.
+     * @return true if all the required flags are supported.
+     */
+    public boolean isSupported(final Set<String> cpuFlags) {
+        return cpuFlags.containsAll(this.flags);
+    }
+
+    /**
+     * Find the variant using a directory.
+     *
+     * @param directory Directory name.
+     * @return The matching variant, empty if the directory is not a variant one.
+     */
+    public static Optional<CpuVariant> fromDirectory(final String directory) {
+        return Arrays.stream(values()).filter(v -> v.directory.equals(directory)).findFirst();
+    }
+
+    /**
+     * Provide the variants usable on the current CPU, honoring the {@link #PROPERTY} override.
+     *
+     * @return The usable variants, the fastest first.
+     */
+    public static List<CpuVariant> available() {
+        return available(System.getProperty(PROPERTY), CpuFeatures.current());
+    }
+
+    /**
+     * Provide the variants usable for a set of CPU flags.
+     *
+     * @param override Override value, null to use the flags.
+     * @param cpuFlags Flags supported by the CPU.
+     * @return The usable variants, the fastest first.
+     * @throws IllegalStateException If the override value is not a known variant.
+     */
+    static List<CpuVariant> available(final String override, final Set<String> cpuFlags) {
+        List<CpuVariant> result = new ArrayList<>();
+        if (override == null || override.isBlank()) {
+            for (CpuVariant v : values()) {
+                if (v.isSupported(cpuFlags)) {
+                    result.add(v);
+                }
+            }
+            return List.copyOf(result);
+        }
+        String value = override.trim().toLowerCase(Locale.ROOT);
+        if (NONE.equals(value)) {
+            return List.of();
+        }
+        CpuVariant forced = fromDirectory(value)
+                .orElseThrow(() -> new IllegalStateException("Unknown cpu variant " + override + " in " + PROPERTY + "."));
+        List<CpuVariant> all = Arrays.asList(values());
+        return List.copyOf(all.subList(all.indexOf(forced), all.size()));
+    }
+}
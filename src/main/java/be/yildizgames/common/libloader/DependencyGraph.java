@@ -0,0 +1,196 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Dependency graph between native libraries, built from the DT_NEEDED entries of their ELF dynamic section.
+ * Only the dependencies resolved to a registered library are part of the graph, system libraries are left to
+ * the dynamic linker.
+ * The dependencies of a library are read once per registry generation, so they are read again once the registered
+ * libraries have been refreshed, invalidated or updated.
+ *
+ * @author Grégory Van den Borre
+ */
+final class DependencyGraph {
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(DependencyGraph.class.getName());
+
+    /**
+     * Resolve a needed library name to the path of a registered library, null if not registered.
+     */
+    private final Function<String, String> resolver;
+
+    /**
+     * Provide the generation of the registered libraries, the dependencies read for another generation are stale.
+     */
+    private final LongSupplier generation;
+
+    /**
+     * Direct dependencies of each library path, with the generation they have been read for.
+     */
+    private final Map<String, Dependencies> dependencies = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new instance, for registered libraries never changing.
+     *
+     * @param resolver Resolve a needed library name to the path of a registered library, null if not registered.
+     */
+    DependencyGraph(final Function<String, String> resolver) {
+        this(resolver, () -> 0);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param resolver Resolve a needed library name to the path of a registered library, null if not registered.
+     * @param generation Provide the generation of the registered libraries, changed each time they change.
+     */
+    DependencyGraph(final Function<String, String> resolver, final LongSupplier generation) {
+        super();
+        this.resolver = resolver;
+        this.generation = generation;
+    }
+
+    /**
+     * Provide the registered libraries a library directly depends on.
+     *
+     * @param path Path of the library.
+     * @return The paths of its registered dependencies, never null.
+     */
+    List<String> dependenciesOf(final String path) {
+        long current = this.generation.getAsLong();
+        Dependencies cached = this.dependencies.get(path);
+        if (cached != null && cached.generation() == current) {
+            return cached.paths();
+        }
+        List<String> result = ElfFile.read(Path.of(path))
+                .map(ElfFile::getNeeded)
+                .orElse(List.of())
+                .stream()
+                .map(this.resolver)
+                .filter(Objects::nonNull)
+                .filter(d -> !d.equals(path))
+                .distinct()
+                .toList();
+        if (current == this.generation.getAsLong()) {
+            this.dependencies.put(path, new Dependencies(current, result));
+        }
+        return result;
+    }
+
+    /**
+     * Sort libraries so every library comes after its dependencies.
+     * Registered dependencies not in the list are added, libraries without relation keep the provided order.
+     *
+     * @param paths Paths of the libraries to sort.
+     * @return The sorted paths, never null.
+     */
+    List<String> order(final List<String> paths) {
+        Set<String> sorted = new LinkedHashSet<>();
+        Set<String> inProgress = new HashSet<>();
+        for (String path : paths) {
+            this.visit(path, sorted, inProgress);
+        }
+        return new ArrayList<>(sorted);
+    }
+
+    private void visit(final String path, final Set<String> sorted, final Set<String> inProgress) {
+        if (sorted.contains(path)) {
+            return;
+        }
+        if (!inProgress.add(path)) {
+            LOGGER.log(System.Logger.Level.WARNING, "Circular dependency detected on {0}.", path);
+            return;
+        }
+        for (String dependency : this.dependenciesOf(path)) {
+            this.visit(dependency, sorted, inProgress);
+        }
+        inProgress.remove(path);
+        sorted.add(path);
+    }
+
+    /**
+     * Run an action on libraries respecting their dependencies, a library is processed as soon as all its
+     * dependencies are, so independent libraries are processed concurrently.
+     * This method waits for all the actions to complete.
+     *
+     * @param paths Paths of the libraries to process.
+     * @param action Action to run on each library.
+     * @param executor Executor running the actions.
+     */
+    void runInOrder(final List<String> paths, final Consumer<String> action, final Executor executor) {
+        Futures.join(this.runInOrderAsync(paths, action, executor));
+    }
+
+    /**
+     * Run an action on libraries respecting their dependencies, as {@link #runInOrder(List, Consumer, Executor)},
+     * without waiting for the actions to complete.
+     *
+     * @param paths Paths of the libraries to process.
+     * @param action Action to run on each library.
+     * @param executor Executor running the actions.
+     * @return A task completed when all the actions are.
+     */
+    CompletableFuture<Void> runInOrderAsync(final List<String> paths, final Consumer<String> action, final Executor executor) {
+        Map<String, CompletableFuture<Void>> tasks = new HashMap<>();
+        for (String path : this.order(paths)) {
+            CompletableFuture<?>[] dependencyTasks = this.dependenciesOf(path)
+                    .stream()
+                    .map(tasks::get)
+                    .filter(Objects::nonNull)
+                    .toArray(CompletableFuture[]::new);
+            tasks.put(path, CompletableFuture.allOf(dependencyTasks).thenRunAsync(() -> action.accept(path), executor));
+        }
+        return CompletableFuture.allOf(tasks.values().toArray(CompletableFuture[]::new));
+    }
+
+    /**
+     * Direct dependencies of a library.
+     *
+     * @param generation Generation of the registered libraries they have been read for.
+     * @param paths Paths of the registered dependencies.
+     */
+    private record Dependencies(long generation, List<String> paths) {
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Open libraries with dlopen called through the foreign function and memory API, to choose how the symbols are
+ * bound, which System.load and SymbolLookup.libraryLookup do not allow.
+ * The handles are bound to an arena, the library is closed with dlclose when that arena is closed.
+ * Only available on Linux.
+ *
+ * @author Grégory Van den Borre
+ */
+final class DynamicLinker {
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(DynamicLinker.class.getName());
+
+    /**
+     * Maximum length read for an error message.
+     */
+    private static final long MAX_ERROR_LENGTH = 4096;
+
+    private DynamicLinker() {
+        super();
+    }
+
+    /**
+     * Open a library.
+     *
+     * @param library Absolute path of the library.
+     * @param flags dlopen flags.
+     * @param arena Arena controlling the library lifetime.
+     * @return The lookup for the library symbols, using dlsym.
+     * @throws IllegalStateException If the library cannot be opened, with the dlerror message, or if the system is
+     * not Linux.
+     */
+    static SymbolLookup open(final Path library, final int flags, final Arena arena) {
+        Functions functions = Functions.get();
+        MemorySegment handle;
+        String error;
+        try (Arena local = Arena.ofConfined()) {
+            String name = library.toString();
+            MemorySegment path = local.allocateFrom(name);
+            handle = (MemorySegment) functions.dlopen.invokeExact(path, flags);
+            error = handle.equals(MemorySegment.NULL) ? lastError(functions) : null;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot call dlopen for " + library, e);
+        }
+        if (error != null) {
+            throw new IllegalStateException("Cannot open " + library + ": " + error);
+        }
+        MemorySegment scoped = handle.reinterpret(arena, h -> close(functions, h));
+        return symbol -> find(functions, scoped, symbol, arena);
+    }
+
+    private static Optional<MemorySegment> find(final Functions functions, final MemorySegment handle, final String symbol, final Arena arena) {
+        try (Arena local = Arena.ofConfined()) {
+            MemorySegment name = local.allocateFrom(symbol);
+            MemorySegment address = (MemorySegment) functions.dlsym.invokeExact(handle, name);
+            if (address.equals(MemorySegment.NULL)) {
+                return Optional.empty();
+            }
+            return Optional.of(address.reinterpret(arena, null));
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot call dlsym for " + symbol, e);
+        }
+    }
+
+    /**
+     * Close a library, called when its arena is closed, so failures are only logged.
+     *
+     * @param functions dl functions.
+     * @param handle Library handle.
+     */
+    private static void close(final Functions functions, final MemorySegment handle) {
+        try {
+            int result = (int) functions.dlclose.invokeExact(handle);
+            if (result != 0) {
+                LOGGER.log(System.Logger.Level.WARNING, "dlclose failed: {0}", lastError(functions));
+            }
+        } catch (Throwable e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Cannot call dlclose", e);
+        }
+    }
+
+    private static String lastError(final Functions functions) throws Throwable {
+        MemorySegment message = (MemorySegment) functions.dlerror.invokeExact();
+        return message.equals(MemorySegment.NULL) ? "unknown error" : message.reinterpret(MAX_ERROR_LENGTH).getString(0);
+    }
+
+    /**
+     * Handles on the dl functions, linked on first use.
+     *
+     * @param dlopen void *dlopen(const char *filename, int flags).
+     * @param dlsym void *dlsym(void *handle, const char *symbol).
+     * @param dlclose int dlclose(void *handle).
+     * @param dlerror char *dlerror(void).
+     */
+    private record Functions(MethodHandle dlopen, MethodHandle dlsym, MethodHandle dlclose, MethodHandle dlerror) {
+
+        private static Functions get() {
+            if (!System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("linux")) {
+                throw new IllegalStateException("Binding modes are only supported on Linux.");
+            }
+            return Holder.FUNCTIONS;
+        }
+    }
+
+    /**
+     * Lazy holder, the functions are linked when the first library is opened.
+     * They are in the C library since glibc 2.34, and in libdl before.
+     */
+    private static final class Holder {
+
+        private static final Functions FUNCTIONS = link();
+
+        private static Functions link() {
+            Linker linker = Linker.nativeLinker();
+            SymbolLookup lookup = linker.defaultLookup();
+            if (lookup.find("dlopen").isEmpty()) {
+                lookup = SymbolLookup.libraryLookup("libdl.so.2", Arena.global());
+            }
+            return new Functions(
+                    linker.downcallHandle(lookup.find("dlopen").orElseThrow(),
+                            FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_INT)),
+                    linker.downcallHandle(lookup.find("dlsym").orElseThrow(),
+                            FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS)),
+                    linker.downcallHandle(lookup.find("dlclose").orElseThrow(),
+                            FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS)),
+                    linker.downcallHandle(lookup.find("dlerror").orElseThrow(),
+                            FunctionDescriptor.of(ValueLayout.ADDRESS)));
+        }
+    }
+}
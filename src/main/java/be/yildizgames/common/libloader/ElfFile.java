@@ -0,0 +1,461 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Minimal reader for the ELF shared object format, only reads the header and the dynamic section.
+ * Only the structures needed are read from the file: the header, the program headers, the dynamic section and the
+ * strings it references, so the size of the library does not matter.
+ *
+ * @author Grégory Van den Borre
+ */
+final class ElfFile {
+
+    /**
+     * 32 bits ELF class.
+     */
+    static final int CLASS_32 = 1;
+
+    /**
+     * 64 bits ELF class.
+     */
+    static final int CLASS_64 = 2;
+
+    /**
+     * Program header type for a loadable segment.
+     */
+    private static final int PT_LOAD = 1;
+
+    /**
+     * Program header type for the dynamic section.
+     */
+    private static final int PT_DYNAMIC = 2;
+
+    /**
+     * Dynamic entry tag for a needed library.
+     */
+    private static final long DT_NEEDED = 1;
+
+    /**
+     * Dynamic entry tag for the string table address.
+     */
+    private static final long DT_STRTAB = 5;
+
+    /**
+     * Dynamic entry tag for the shared object name.
+     */
+    private static final long DT_SONAME = 14;
+
+    /**
+     * ELF file type for a shared object.
+     */
+    static final int ET_DYN = 3;
+
+    /**
+     * Size of the smallest header, for 32 bits files.
+     */
+    private static final int MIN_HEADER_SIZE = 52;
+
+    /**
+     * Size of the largest header, for 64 bits files.
+     */
+    private static final int MAX_HEADER_SIZE = 64;
+
+    /**
+     * Largest program header table or dynamic section read, larger ones are considered corrupted.
+     */
+    private static final int MAX_TABLE_SIZE = 1 << 20;
+
+    /**
+     * Size of the chunks read to find the end of a string.
+     */
+    private static final int STRING_CHUNK = 256;
+
+    /**
+     * ELF machine of the running JVM, -1 if the architecture is unknown.
+     */
+    private static final int CURRENT_MACHINE = machineOf(System.getProperty("os.arch", ""));
+
+    /**
+     * ELF class of the running JVM.
+     */
+    private static final int CURRENT_CLASS = "32".equals(System.getProperty("sun.arch.data.model")) ? CLASS_32 : CLASS_64;
+
+    /**
+     * ELF class, 32 or 64 bits.
+     */
+    private final int elfClass;
+
+    /**
+     * Byte order of the file.
+     */
+    private final ByteOrder order;
+
+    /**
+     * ELF file type, 3 for a shared object.
+     */
+    private final int type;
+
+    /**
+     * Target machine architecture.
+     */
+    private final int machine;
+
+    /**
+     * Shared object name, null if none is declared.
+     */
+    private final String soname;
+
+    /**
+     * Names of the libraries this one depends on.
+     */
+    private final List<String> needed;
+
+    private ElfFile(int elfClass, ByteOrder order, int type, int machine, String soname, List<String> needed) {
+        super();
+        this.elfClass = elfClass;
+        this.order = order;
+        this.type = type;
+        this.machine = machine;
+        this.soname = soname;
+        this.needed = Collections.unmodifiableList(needed);
+    }
+
+    /**
+     * Read an ELF file.
+     *
+     * @param file File to read, cannot be null.
+     * @return The read file, empty if the file is not a valid ELF file or cannot be read.
+     */
+    static Optional<ElfFile> read(final Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            return parse(size, (position, length) -> {
+                ByteBuffer buffer = ByteBuffer.allocate(length);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new EOFException();
+                    }
+                }
+                return buffer.flip();
+            });
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Check if a file can be loaded by the running JVM, before handing it to the dynamic linker.
+     * Files not starting with the ELF magic number are not checked, they are left to the dynamic linker.
+     *
+     * @param file File to check, cannot be null.
+     * @return Why the file cannot be loaded, empty if it can be loaded or is not an ELF file.
+     */
+    static Optional<String> checkCompatibility(final Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Read until the magic number is complete or the file ends.
+            }
+            if (magic.position() < 4 || magic.get(0) != 0x7F || magic.get(1) != 'E' || magic.get(2) != 'L' || magic.get(3) != 'F') {
+                return Optional.empty();
+            }
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+        return read(file)
+                .map(ElfFile::checkCompatibility)
+                .orElse(Optional.of("Truncated or corrupted ELF file."));
+    }
+
+    /**
+     * Check if this file can be loaded by the running JVM.
+     *
+     * @return Why the file cannot be loaded, empty if it can be loaded.
+     */
+    Optional<String> checkCompatibility() {
+        if (this.type != ET_DYN) {
+            return Optional.of("Not a shared object, ELF type " + this.type + ".");
+        }
+        if (this.elfClass != CURRENT_CLASS) {
+            return Optional.of("Built for " + (this.elfClass == CLASS_64 ? 64 : 32) + " bits, running "
+                    + (CURRENT_CLASS == CLASS_64 ? 64 : 32) + " bits.");
+        }
+        if (!this.order.equals(ByteOrder.nativeOrder())) {
+            return Optional.of("Built for " + this.order + ", running " + ByteOrder.nativeOrder() + ".");
+        }
+        if (CURRENT_MACHINE >= 0 && this.machine != CURRENT_MACHINE) {
+            return Optional.of("Built for ELF machine " + this.machine + ", running ELF machine " + CURRENT_MACHINE + ".");
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Map a Java architecture name to its ELF machine.
+     *
+     * @param arch Value of the os.arch property.
+     * @return The ELF machine, -1 if unknown.
+     */
+    static int machineOf(final String arch) {
+        return switch (arch) {
+            case "amd64", "x86_64" -> 62;
+            case "x86", "i386", "i486", "i586", "i686" -> 3;
+            case "aarch64", "arm64" -> 183;
+            case "arm" -> 40;
+            case "riscv64" -> 243;
+            case "ppc64", "ppc64le" -> 21;
+            case "s390x" -> 22;
+            case "loongarch64" -> 258;
+            default -> -1;
+        };
+    }
+
+    /**
+     * Parse an ELF file, reading only the needed ranges.
+     *
+     * @param size File size.
+     * @param content Read a range of the file.
+     * @return The parsed file, empty if the content is not a valid ELF file.
+     * @throws IOException If a range cannot be read.
+     */
+    private static Optional<ElfFile> parse(final long size, final Content content) throws IOException {
+        if (size < MIN_HEADER_SIZE) {
+            return Optional.empty();
+        }
+        try {
+            ByteBuffer header = content.read(0, (int) Math.min(size, MAX_HEADER_SIZE));
+            if (header.get(0) != 0x7F || header.get(1) != 'E' || header.get(2) != 'L' || header.get(3) != 'F') {
+                return Optional.empty();
+            }
+            int elfClass = header.get(4);
+            int data = header.get(5);
+            if ((elfClass != CLASS_32 && elfClass != CLASS_64) || (data != 1 && data != 2)) {
+                return Optional.empty();
+            }
+            ByteOrder order = data == 1 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+            header.order(order);
+            boolean is64 = elfClass == CLASS_64;
+            int type = Short.toUnsignedInt(header.getShort(16));
+            int machine = Short.toUnsignedInt(header.getShort(18));
+            long phoff = is64 ? header.getLong(32) : Integer.toUnsignedLong(header.getInt(28));
+            int phentsize = Short.toUnsignedInt(header.getShort(is64 ? 54 : 42));
+            int phnum = Short.toUnsignedInt(header.getShort(is64 ? 56 : 44));
+            ByteBuffer programHeaders = read(content, size, phoff, (long) phnum * phentsize).order(order);
+            List<Segment> loads = new ArrayList<>();
+            Segment dynamic = null;
+            for (int i = 0; i < phnum; i++) {
+                int offset = i * phentsize;
+                int segmentType = programHeaders.getInt(offset);
+                Segment segment = is64
+                        ? new Segment(programHeaders.getLong(offset + 8), programHeaders.getLong(offset + 16), programHeaders.getLong(offset + 32))
+                        : new Segment(Integer.toUnsignedLong(programHeaders.getInt(offset + 4)),
+                        Integer.toUnsignedLong(programHeaders.getInt(offset + 8)),
+                        Integer.toUnsignedLong(programHeaders.getInt(offset + 16)));
+                if ((segmentType == PT_LOAD || segmentType == PT_DYNAMIC)
+                        && (segment.offset < 0 || segment.size < 0 || segment.offset + segment.size > size)) {
+                    return Optional.empty();
+                }
+                if (segmentType == PT_LOAD) {
+                    loads.add(segment);
+                } else if (segmentType == PT_DYNAMIC) {
+                    dynamic = segment;
+                }
+            }
+            if (dynamic == null) {
+                return Optional.of(new ElfFile(elfClass, order, type, machine, null, new ArrayList<>()));
+            }
+            ByteBuffer dynamicSection = read(content, size, dynamic.offset, dynamic.size).order(order);
+            int entrySize = is64 ? 16 : 8;
+            long stringTable = -1;
+            long sonameOffset = -1;
+            List<Long> neededOffsets = new ArrayList<>();
+            for (int offset = 0; offset + entrySize <= dynamicSection.limit(); offset += entrySize) {
+                long tag = is64 ? dynamicSection.getLong(offset) : dynamicSection.getInt(offset);
+                long value = is64 ? dynamicSection.getLong(offset + 8) : Integer.toUnsignedLong(dynamicSection.getInt(offset + 4));
+                if (tag == 0) {
+                    break;
+                } else if (tag == DT_NEEDED) {
+                    neededOffsets.add(value);
+                } else if (tag == DT_STRTAB) {
+                    stringTable = value;
+                } else if (tag == DT_SONAME) {
+                    sonameOffset = value;
+                }
+            }
+            long stringTableOffset = toFileOffset(loads, stringTable);
+            if (stringTableOffset < 0) {
+                return Optional.of(new ElfFile(elfClass, order, type, machine, null, new ArrayList<>()));
+            }
+            List<String> needed = new ArrayList<>(neededOffsets.size());
+            for (long neededOffset : neededOffsets) {
+                needed.add(readString(content, size, stringTableOffset + neededOffset));
+            }
+            String soname = sonameOffset < 0 ? null : readString(content, size, stringTableOffset + sonameOffset);
+            return Optional.of(new ElfFile(elfClass, order, type, machine, soname, needed));
+        } catch (EOFException | IndexOutOfBoundsException | BufferUnderflowException | ArithmeticException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Read a table of the file.
+     *
+     * @param content File content.
+     * @param size File size.
+     * @param position Table offset in the file.
+     * @param length Table size.
+     * @return The table content.
+     * @throws EOFException If the table is not inside the file, or too large to be valid.
+     */
+    private static ByteBuffer read(final Content content, final long size, final long position, final long length) throws IOException {
+        if (position < 0 || length < 0 || length > MAX_TABLE_SIZE || position + length > size) {
+            throw new EOFException();
+        }
+        return content.read(position, (int) length);
+    }
+
+    /**
+     * Convert a virtual address to a file offset, using the loadable segments.
+     *
+     * @param loads Loadable segments.
+     * @param address Address to convert.
+     * @return The file offset, -1 if the address is not in any loadable segment.
+     */
+    private static long toFileOffset(final List<Segment> loads, final long address) {
+        if (address < 0) {
+            return -1;
+        }
+        for (Segment load : loads) {
+            if (address >= load.address && address < load.address + load.size) {
+                return address - load.address + load.offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Read a null terminated string, by chunks until its end is found.
+     *
+     * @param content File content.
+     * @param size File size.
+     * @param position String offset in the file.
+     * @return The read string.
+     * @throws EOFException If the string is not terminated before the end of the file.
+     */
+    private static String readString(final Content content, final long size, final long position) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long current = position;
+        while (true) {
+            ByteBuffer chunk = read(content, size, current, Math.min(STRING_CHUNK, size - current));
+            if (!chunk.hasRemaining()) {
+                throw new EOFException();
+            }
+            while (chunk.hasRemaining()) {
+                byte b = chunk.get();
+                if (b == 0) {
+                    return bytes.toString(StandardCharsets.UTF_8);
+                }
+                bytes.write(b);
+            }
+            current += STRING_CHUNK;
+        }
+    }
+
+    int getElfClass() {
+        return this.elfClass;
+    }
+
+    ByteOrder getOrder() {
+        return this.order;
+    }
+
+    int getType() {
+        return this.type;
+    }
+
+    int getMachine() {
+        return this.machine;
+    }
+
+    /**
+     * Provide the shared object name.
+     *
+     * @return The declared SONAME, empty if none.
+     */
+    Optional<String> getSoname() {
+        return Optional.ofNullable(this.soname);
+    }
+
+    /**
+     * Provide the libraries this one depends on.
+     *
+     * @return The DT_NEEDED entries, in declaration order, never null.
+     */
+    List<String> getNeeded() {
+        return this.needed;
+    }
+
+    /**
+     * Access to a range of the file content.
+     */
+    @FunctionalInterface
+    private interface Content {
+
+        /**
+         * Read a range of the file.
+         *
+         * @param position Offset in the file.
+         * @param length Number of bytes to read.
+         * @return A buffer holding exactly the range.
+         * @throws IOException If the range cannot be read.
+         */
+        ByteBuffer read(long position, int length) throws IOException;
+    }
+
+    /**
+     * Part of a program header.
+     *
+     * @param offset Offset in the file.
+     * @param address Virtual address.
+     * @param size Size in the file.
+     */
+    private record Segment(long offset, long address, long size) {
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the native files already extracted in a directory, keyed by their content.
+ * A file is considered up to date when its recorded hash and size match the bundled one, and the file on disk
+ * still has the size and modification time recorded when it was written.
+ * The bundled size and hash are the ones of the source, which can be compressed, so they can differ from the
+ * extracted file ones.
+ *
+ * @author Grégory Van den Borre
+ */
+final class ExtractionCache {
+
+    /**
+     * Name of the index file, stored in the extraction directory.
+     */
+    static final String INDEX_FILE = ".libloader-cache";
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(ExtractionCache.class.getName());
+
+    /**
+     * Separator used between the fields of an index line.
+     */
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Directory where the files are extracted.
+     */
+    private final Path directory;
+
+    /**
+     * Extracted files, by their name relative to the extraction directory.
+     */
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private ExtractionCache(Path directory) {
+        super();
+        this.directory = directory;
+    }
+
+    /**
+     * Load the index of an extraction directory, an empty index is provided if none exists or if it cannot be read.
+     *
+     * @param directory Extraction directory, cannot be null.
+     * @return The cache for that directory, never null.
+     */
+    static ExtractionCache load(final Path directory) {
+        ExtractionCache cache = new ExtractionCache(directory);
+        Path index = directory.resolve(INDEX_FILE);
+        if (Files.isRegularFile(index)) {
+            try {
+                List<String> lines = Files.readAllLines(index, StandardCharsets.UTF_8);
+                for (String line : lines) {
+                    String[] values = line.split("\\" + SEPARATOR);
+                    if (values.length == 5) {
+                        cache.entries.put(values[0], new Entry(Long.parseLong(values[1]), values[2], Long.parseLong(values[3]), Long.parseLong(values[4])));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Cannot read extraction cache " + index + ", all files will be extracted.", e);
+                cache.entries.clear();
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Check if a file is already extracted with the expected content.
+     *
+     * @param name Name of the file, relative to the extraction directory.
+     * @param size Expected size of the source.
+     * @param hash Expected content hash of the source.
+     * @return true if the file on disk can be reused as is.
+     */
+    boolean isUpToDate(final String name, final long size, final String hash) {
+        Entry entry = this.entries.get(name);
+        return entry != null && entry.hash.equals(hash) && this.isIntact(name, size);
+    }
+
+    /**
+     * Check if a file is already extracted from a source of the same size, and was not altered since, so only the
+     * source hash can tell if the file is up to date.
+     *
+     * @param name Name of the file, relative to the extraction directory.
+     * @param size Expected size of the source.
+     * @return true if the file on disk was extracted from a source of that size and is unchanged.
+     */
+    boolean isIntact(final String name, final long size) {
+        Entry entry = this.entries.get(name);
+        if (entry == null || entry.size != size) {
+            return false;
+        }
+        Path target = this.directory.resolve(name);
+        try {
+            return Files.isRegularFile(target)
+                    && Files.size(target) == entry.fileSize
+                    && Files.getLastModifiedTime(target).toMillis() == entry.lastModified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Record a freshly extracted file.
+     *
+     * @param name Name of the file, relative to the extraction directory.
+     * @param size Size of the source.
+     * @param hash Content hash of the source.
+     * @throws IOException If the file attributes cannot be read.
+     */
+    void update(final String name, final long size, final String hash) throws IOException {
+        Path target = this.directory.resolve(name);
+        this.entries.put(name, new Entry(size, hash, Files.size(target), Files.getLastModifiedTime(target).toMillis()));
+    }
+
+    /**
+     * Persist the index in the extraction directory, the index is written in a temporary file first and then moved.
+     *
+     * @throws IOException If the index cannot be written.
+     */
+    void save() throws IOException {
+        Files.createDirectories(this.directory);
+        Path temp = Files.createTempFile(this.directory, INDEX_FILE, ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> e : this.entries.entrySet()) {
+                Entry entry = e.getValue();
+                writer.write(e.getKey() + SEPARATOR + entry.size + SEPARATOR + entry.hash + SEPARATOR + entry.fileSize + SEPARATOR + entry.lastModified);
+                writer.newLine();
+            }
+        }
+        moveAtomically(temp, this.directory.resolve(INDEX_FILE));
+    }
+
+    /**
+     * Move a file, atomically if the file system supports it.
+     *
+     * @param source File to move.
+     * @param target Destination, replaced if it exists.
+     * @throws IOException If the file cannot be moved.
+     */
+    static void moveAtomically(final Path source, final Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Recorded state of an extracted file.
+     *
+     * @param size Size of the source.
+     * @param hash Content hash of the source.
+     * @param fileSize Size of the extracted file.
+     * @param lastModified Modification time of the file when it was written, in milliseconds.
+     */
+    private record Entry(long size, String hash, long fileSize, long lastModified) {
+    }
+}
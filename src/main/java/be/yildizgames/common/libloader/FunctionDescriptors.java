@@ -0,0 +1,86 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Build the function descriptor matching a Java method signature, to bind that method to a native function.
+ *
+ * @author Grégory Van den Borre
+ */
+final class FunctionDescriptors {
+
+    /**
+     * Native layout for each supported Java type.
+     */
+    private static final Map<Class<?>, MemoryLayout> LAYOUTS = Map.of(
+            boolean.class, ValueLayout.JAVA_BOOLEAN,
+            byte.class, ValueLayout.JAVA_BYTE,
+            char.class, ValueLayout.JAVA_CHAR,
+            short.class, ValueLayout.JAVA_SHORT,
+            int.class, ValueLayout.JAVA_INT,
+            long.class, ValueLayout.JAVA_LONG,
+            float.class, ValueLayout.JAVA_FLOAT,
+            double.class, ValueLayout.JAVA_DOUBLE,
+            MemorySegment.class, ValueLayout.ADDRESS);
+
+    private FunctionDescriptors() {
+        super();
+    }
+
+    /**
+     * Build the function descriptor of a method.
+     *
+     * @param method Method to describe, its parameters and return type must be primitives or MemorySegment.
+     * @return The matching function descriptor.
+     * @throws IllegalArgumentException If the method uses an unsupported type.
+     */
+    static FunctionDescriptor of(final Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        MemoryLayout[] arguments = new MemoryLayout[types.length];
+        for (int i = 0; i < types.length; i++) {
+            arguments[i] = layout(method, types[i]);
+        }
+        if (method.getReturnType() == void.class) {
+            return FunctionDescriptor.ofVoid(arguments);
+        }
+        return FunctionDescriptor.of(layout(method, method.getReturnType()), arguments);
+    }
+
+    private static MemoryLayout layout(final Method method, final Class<?> type) {
+        MemoryLayout layout = LAYOUTS.get(type);
+        if (layout == null) {
+            throw new IllegalArgumentException("Unsupported type " + type.getName() + " in " + method
+                    + ", only primitives and MemorySegment can be bound.");
+        }
+        return layout;
+    }
+}
@@ -25,23 +25,106 @@
 
 package be.yildizgames.common.libloader;
 
+import be.yildizgames.common.os.OperatingSystem;
+import be.yildizgames.common.os.factory.OperatingSystems;
+
+import java.util.Arrays;
+import java.util.Locale;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 /**
  * Global loader, can be used to use the same loader, no matter where called from.
+ * The loader is only created when first used, unless one has been set before, so referencing this class does not
+ * extract nor register anything.
+ * The created loader is the one of the first {@link NativeResourceLoaderProvider} service found, or is configured
+ * with the system properties:
+ * <ul>
+ *     <li>yildiz.libloader.mode: jar (default), shared, memory, path or external, matching the NativeResourceLoader
+ *     factories inJar, inJarShared, inJarInMemory, inPath and external.</li>
+ *     <li>yildiz.libloader.path: directory of the libraries, required for shared and path, optional for jar.</li>
+ *     <li>yildiz.libloader.systems: comma separated names of the supported systems, all by default.</li>
+ *     <li>yildiz.libloader.preload: true to create the loader, and register its libraries, in background as soon
+ *     as this class is initialized, instead of on first use. If the preload fails, the loader is created again on
+ *     first use, and if a loader is set before the preload completes, the preloaded one is discarded.</li>
+ * </ul>
  * @author Grégory Van den Borre
  */
 public class GlobalNativeResourceLoader {
 
+    /**
+     * System property for the loader mode.
+     */
+    public static final String MODE_PROPERTY = "yildiz.libloader.mode";
+
+    /**
+     * System property for the libraries directory.
+     */
+    public static final String PATH_PROPERTY = "yildiz.libloader.path";
+
+    /**
+     * System property for the supported systems.
+     */
+    public static final String SYSTEMS_PROPERTY = "yildiz.libloader.systems";
+
+    /**
+     * System property to create the loader in background.
+     */
+    public static final String PRELOAD_PROPERTY = "yildiz.libloader.preload";
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(GlobalNativeResourceLoader.class.getName());
+
     /**
      * Unique instance.
      */
     private static final GlobalNativeResourceLoader INSTANCE = new GlobalNativeResourceLoader();
 
     /**
-     * Current loader, default is in jar.
+     * Guard the loader creation and replacement.
      */
-    private NativeResourceLoader loader = NativeResourceLoader.inJar();
+    private final Object lock = new Object();
+
+    /**
+     * Create the loader.
+     */
+    private final Supplier<NativeResourceLoader> factory;
+
+    /**
+     * Loader created in background, null if the preload is not enabled, or once its result has been used or
+     * discarded.
+     */
+    private CompletableFuture<NativeResourceLoader> preloading;
+
+    /**
+     * Current loader, null until created or set, volatile so a created or replaced loader is visible to every
+     * thread.
+     */
+    private volatile NativeResourceLoader loader;
+
+    private GlobalNativeResourceLoader() {
+        this(Boolean.getBoolean(PRELOAD_PROPERTY), GlobalNativeResourceLoader::create);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param preload True to create the loader in background immediately.
+     * @param factory Create the loader.
+     */
+    GlobalNativeResourceLoader(final boolean preload, final Supplier<NativeResourceLoader> factory) {
+        super();
+        this.factory = factory;
+        this.preloading = preload
+                ? CompletableFuture.supplyAsync(this::preload, t -> Thread.ofVirtual().name("libloader-preload").start(t))
+                : null;
+    }
 
     /**
      * Provide the global loader instance.
@@ -58,14 +141,116 @@ public class GlobalNativeResourceLoader {
      */
     public final void setNativeResourceLoader(NativeResourceLoader loader) {
         Objects.requireNonNull(loader);
-        this.loader = loader;
+        synchronized (this.lock) {
+            this.loader = loader;
+            if (this.preloading != null) {
+                this.preloading.cancel(false);
+                this.preloading = null;
+            }
+        }
     }
 
     /**
-     * Provider the global loader.
+     * Provider the global loader, created on first call if none has been set.
      * @return The loader to use, never null.
+     * @throws IllegalStateException If the loader configuration is invalid.
      */
     public final NativeResourceLoader getLoader() {
-        return this.loader;
+        NativeResourceLoader result = this.loader;
+        if (result == null) {
+            synchronized (this.lock) {
+                result = this.loader;
+                if (result == null) {
+                    result = this.takePreloaded().orElseGet(this.factory);
+                    this.loader = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Create the loader in background, its libraries are registered unless a loader has been set meanwhile.
+     *
+     * @return The created loader.
+     */
+    private NativeResourceLoader preload() {
+        NativeResourceLoader created = this.factory.get();
+        return this.loader == null ? created.register() : created;
+    }
+
+    /**
+     * Wait for the preloaded loader, must be called holding the lock.
+     * The preload is only used once, a failed preload is logged and forgotten so the loader is created again.
+     *
+     * @return The preloaded loader, empty if there is no preload, or if it failed.
+     */
+    private Optional<NativeResourceLoader> takePreloaded() {
+        CompletableFuture<NativeResourceLoader> task = this.preloading;
+        if (task == null) {
+            return Optional.empty();
+        }
+        this.preloading = null;
+        try {
+            return Optional.of(Futures.join(task));
+        } catch (RuntimeException | Error e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Native loader preload failed, creating it again.", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Create the loader, from the first provider service if any, from the system properties otherwise.
+     *
+     * @return The created loader.
+     */
+    private static NativeResourceLoader create() {
+        Optional<NativeResourceLoaderProvider> provider = ServiceLoader.load(NativeResourceLoaderProvider.class).findFirst();
+        if (provider.isPresent()) {
+            return Objects.requireNonNull(provider.get().create(), "Native resource loader provider returned null.");
+        }
+        return fromProperties(System::getProperty);
+    }
+
+    /**
+     * Create a loader from its configuration properties.
+     *
+     * @param properties Provide the property values, null if not set.
+     * @return The created loader.
+     * @throws IllegalStateException If the configuration is invalid.
+     */
+    static NativeResourceLoader fromProperties(final UnaryOperator<String> properties) {
+        String mode = Optional.ofNullable(properties.apply(MODE_PROPERTY)).orElse("jar").trim().toLowerCase(Locale.ROOT);
+        String path = properties.apply(PATH_PROPERTY);
+        OperatingSystem[] systems = systems(properties.apply(SYSTEMS_PROPERTY));
+        return switch (mode) {
+            case "jar" -> path == null ? NativeResourceLoader.inJar(systems) : NativeResourceLoader.inJar(path, systems);
+            case "shared" -> NativeResourceLoader.inJarShared(requirePath(path, mode), systems);
+            case "memory" -> NativeResourceLoader.inJarInMemory(systems);
+            case "path" -> NativeResourceLoader.inPath(requirePath(path, mode), systems);
+            case "external" -> NativeResourceLoader.external(systems);
+            default -> throw new IllegalStateException("Unknown native loader mode " + mode + " in " + MODE_PROPERTY + ".");
+        };
+    }
+
+    private static String requirePath(final String path, final String mode) {
+        if (path == null || path.isBlank()) {
+            throw new IllegalStateException(PATH_PROPERTY + " is required for the " + mode + " native loader mode.");
+        }
+        return path;
+    }
+
+    private static OperatingSystem[] systems(final String names) {
+        OperatingSystem[] all = OperatingSystems.getAll();
+        if (names == null || names.isBlank()) {
+            return all;
+        }
+        return Arrays.stream(names.split(","))
+                .map(String::trim)
+                .map(n -> Arrays.stream(all)
+                        .filter(os -> os.getName().equalsIgnoreCase(n))
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalStateException("Unknown system " + n + " in " + SYSTEMS_PROPERTY + ".")))
+                .toArray(OperatingSystem[]::new);
     }
 }
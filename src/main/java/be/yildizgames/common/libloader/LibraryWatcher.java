@@ -0,0 +1,195 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Keep a loader registry up to date with the changes in its libraries directory.
+ * File system events are collected until no new event comes for the debounce delay, and then applied to the
+ * registry at once, so a library being copied in several writes is only looked up once.
+ * The watch runs on a virtual thread until closed.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class LibraryWatcher implements AutoCloseable {
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(LibraryWatcher.class.getName());
+
+    /**
+     * Registry to update.
+     */
+    private final NativeRegistry registry;
+
+    /**
+     * Service receiving the file system events.
+     */
+    private final WatchService service;
+
+    /**
+     * Watched directories by their key.
+     */
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * Time without event to wait before applying the changes.
+     */
+    private final long debounce;
+
+    /**
+     * Thread running the watch.
+     */
+    private final Thread thread;
+
+    /**
+     * Start watching a directory and its sub directories.
+     *
+     * @param directory Directory to watch.
+     * @param registry Registry to update.
+     * @param debounce Time without event to wait before applying the changes.
+     * @throws IllegalStateException If the directory cannot be watched.
+     */
+    LibraryWatcher(final Path directory, final NativeRegistry registry, final Duration debounce) {
+        super();
+        this.registry = registry;
+        this.debounce = debounce.toNanos();
+        try {
+            this.service = FileSystems.getDefault().newWatchService();
+            this.registerAll(directory);
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("Cannot watch " + directory, e);
+        }
+        this.thread = Thread.ofVirtual().name("libloader-watcher").start(this::run);
+    }
+
+    /**
+     * Check if the watch is running.
+     *
+     * @return true until the watcher is closed.
+     */
+    public boolean isRunning() {
+        return this.thread.isAlive();
+    }
+
+    /**
+     * Stop watching, pending changes are not applied.
+     */
+    @Override
+    public void close() {
+        try {
+            this.service.close();
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Cannot close the watch service", e);
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<Path> changes = new LinkedHashSet<>();
+                boolean overflow = this.collect(this.service.take(), changes);
+                WatchKey key;
+                while ((key = this.service.poll(this.debounce, TimeUnit.NANOSECONDS)) != null) {
+                    overflow |= this.collect(key, changes);
+                }
+                if (overflow) {
+                    LOGGER.log(System.Logger.Level.DEBUG, "Too many changes, libraries will be registered again.");
+                    this.registry.refresh();
+                } else if (!changes.isEmpty()) {
+                    this.registry.update(changes);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Library watcher stopped.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Read the events of a key, new directories are watched too.
+     *
+     * @param key Key to read.
+     * @param changes Set to fill with the changed files.
+     * @return true if some events have been lost.
+     */
+    private boolean collect(final WatchKey key, final Set<Path> changes) {
+        Path directory = this.directories.get(key);
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                overflow = true;
+                continue;
+            }
+            Path changed = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                try {
+                    this.registerAll(changed);
+                    try (Stream<Path> files = Files.walk(changed)) {
+                        files.filter(Files::isRegularFile).forEach(changes::add);
+                    }
+                } catch (IOException | UncheckedIOException e) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Cannot watch " + changed, e);
+                    overflow = true;
+                }
+            } else {
+                changes.add(changed);
+            }
+        }
+        if (!key.reset()) {
+            this.directories.remove(key);
+        }
+        return overflow;
+    }
+
+    private void registerAll(final Path root) throws IOException {
+        try (Stream<Path> tree = Files.walk(root)) {
+            for (Path d : (Iterable<Path>) tree.filter(Files::isDirectory)::iterator) {
+                WatchKey key = d.register(this.service, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                this.directories.put(key, d);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Publish the measures of the loader phases as flight recorder events and to the registered listeners.
+ * Listeners declared as services receive the measures of every loader.
+ *
+ * @author Grégory Van den Borre
+ */
+final class LoaderMetrics {
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(LoaderMetrics.class.getName());
+
+    /**
+     * Listeners declared as services.
+     */
+    private static final List<NativeLoaderListener> SERVICES = loadServices();
+
+    /**
+     * Listeners registered on a loader.
+     */
+    private final List<NativeLoaderListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create a new instance, notifying only the listeners declared as services until others are added.
+     */
+    LoaderMetrics() {
+        super();
+    }
+
+    /**
+     * Load the listeners declared as services, a provider that cannot be found or instantiated is logged and
+     * skipped, so it does not prevent the loader class from initializing.
+     *
+     * @return The instantiated listeners.
+     */
+    private static List<NativeLoaderListener> loadServices() {
+        List<NativeLoaderListener> services = new ArrayList<>();
+        Iterator<NativeLoaderListener> iterator = ServiceLoader.load(NativeLoaderListener.class).iterator();
+        while (true) {
+            try {
+                if (!iterator.hasNext()) {
+                    return List.copyOf(services);
+                }
+                services.add(iterator.next());
+            } catch (ServiceConfigurationError e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Cannot load a native loader listener service, it is ignored.", e);
+            }
+        }
+    }
+
+    void addListener(final NativeLoaderListener listener) {
+        this.listeners.add(listener);
+    }
+
+    void removeListener(final NativeLoaderListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Publish an extraction.
+     *
+     * @param event Event begun when the extraction started.
+     * @param destination Directory where the files are extracted.
+     * @param files Number of files in the extracted directory.
+     * @param copied Number of files copied.
+     * @param bytes Number of bytes copied.
+     * @param start Value of System.nanoTime when the extraction started.
+     */
+    void extracted(final ExtractionEvent event, final Path destination, final int files, final int copied, final long bytes, final long start) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.destination = destination.toString();
+            event.files = files;
+            event.copied = copied;
+            event.bytes = bytes;
+            event.commit();
+        }
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        this.notify(l -> l.onExtraction(destination, files, copied, bytes, duration));
+    }
+
+    /**
+     * Publish a registration.
+     *
+     * @param event Event begun when the registration started.
+     * @param directory Registered directory.
+     * @param scanned Number of entries read.
+     * @param registered Number of libraries registered.
+     * @param start Value of System.nanoTime when the registration started.
+     */
+    void registered(final RegistrationEvent event, final Path directory, final int scanned, final int registered, final long start) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.directory = directory.toString();
+            event.scanned = scanned;
+            event.registered = registered;
+            event.commit();
+        }
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+        this.notify(l -> l.onRegistration(directory, scanned, registered, duration));
+    }
+
+    /**
+     * Publish a failed registration.
+     *
+     * @param event Event begun when the registration started.
+     * @param directory Directory that failed to be registered.
+     * @param error Failure cause.
+     */
+    void registrationFailed(final RegistrationEvent event, final Path directory, final IOException error) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.directory = directory.toString();
+            event.error = error.toString();
+            event.commit();
+        }
+        this.notify(l -> l.onRegistrationFailure(directory, error));
+    }
+
+    /**
+     * Publish a library load.
+     *
+     * @param event Event begun when the load started.
+     * @param path Path of the library.
+     * @param duration Time spent in System.load.
+     * @param error Failure cause, null if the library was loaded.
+     */
+    void loaded(final LoadEvent event, final String path, final Duration duration, final Throwable error) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.success = error == null;
+            event.error = error == null ? null : error.toString();
+            event.commit();
+        }
+        this.notify(l -> l.onLoad(path, duration, error));
+    }
+
+    private void notify(final Consumer<NativeLoaderListener> action) {
+        for (NativeLoaderListener listener : SERVICES) {
+            notify(listener, action);
+        }
+        for (NativeLoaderListener listener : this.listeners) {
+            notify(listener, action);
+        }
+    }
+
+    private static void notify(final NativeLoaderListener listener, final Consumer<NativeLoaderListener> action) {
+        try {
+            action.accept(listener);
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Native loader listener " + listener + " failed.", e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Find a RAM backed directory to extract the natives to, so extracting does not write to disk.
+ * A candidate is usable if it is on a tmpfs or ramfs mount allowing execution, writable, and has enough free
+ * space; /dev/shm is tried first, then the user runtime directory, /run/shm and the temporary directory.
+ * The mounts are read from /proc/mounts, so nothing is found on other systems than Linux.
+ *
+ * @author Grégory Van den Borre
+ */
+final class MemoryDirectory {
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(MemoryDirectory.class.getName());
+
+    /**
+     * Mounted file systems on Linux.
+     */
+    private static final Path MOUNTS = Path.of("/proc/mounts");
+
+    /**
+     * File systems backed by memory.
+     */
+    private static final Set<String> RAM_FILE_SYSTEMS = Set.of("tmpfs", "ramfs");
+
+    /**
+     * Free space required, relative to the bundled size, as compressed natives are bigger once extracted.
+     */
+    private static final int SPACE_FACTOR = 3;
+
+    private MemoryDirectory() {
+        super();
+    }
+
+    /**
+     * Find a usable RAM backed directory, and create a sub directory only accessible by the current user in it.
+     *
+     * @param size Bundled size of the natives to extract.
+     * @return The directory to extract to, empty if no RAM backed directory is usable.
+     */
+    static Optional<Path> find(final long size) {
+        if (!Files.isReadable(MOUNTS)) {
+            return Optional.empty();
+        }
+        List<Mount> mounts;
+        try {
+            mounts = parseMounts(Files.readAllLines(MOUNTS));
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Cannot read {0}", MOUNTS);
+            return Optional.empty();
+        }
+        for (Path candidate : candidates()) {
+            if (isUsable(candidate, mounts, size * SPACE_FACTOR)) {
+                Optional<Path> directory = prepare(candidate.resolve("yildiz-libloader-" + System.getProperty("user.name")));
+                if (directory.isPresent()) {
+                    return directory;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static List<Path> candidates() {
+        Set<Path> result = new LinkedHashSet<>();
+        result.add(Path.of("/dev/shm"));
+        String runtime = System.getenv("XDG_RUNTIME_DIR");
+        if (runtime != null && !runtime.isBlank()) {
+            result.add(Path.of(runtime));
+        }
+        result.add(Path.of("/run/shm"));
+        result.add(Path.of(System.getProperty("java.io.tmpdir")));
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Check if a directory can receive the natives.
+     *
+     * @param candidate Directory to check.
+     * @param mounts Mounted file systems.
+     * @param required Free space required.
+     * @return true if the directory is on a RAM file system allowing execution, writable, and with enough space.
+     */
+    static boolean isUsable(final Path candidate, final List<Mount> mounts, final long required) {
+        if (!Files.isDirectory(candidate) || !Files.isWritable(candidate)) {
+            return false;
+        }
+        try {
+            Path real = candidate.toRealPath();
+            Optional<Mount> mount = mounts.stream()
+                    .filter(m -> real.startsWith(m.point()))
+                    .reduce((a, b) -> b.point().getNameCount() >= a.point().getNameCount() ? b : a);
+            if (mount.isEmpty() || !RAM_FILE_SYSTEMS.contains(mount.get().type()) || mount.get().options().contains("noexec")) {
+                return false;
+            }
+            return "ramfs".equals(mount.get().type()) || Files.getFileStore(real).getUsableSpace() >= required;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Create a directory only accessible by the current user, or reuse it if it already exists and is owned by
+     * the current user.
+     *
+     * @param directory Directory to prepare.
+     * @return The directory, empty if it cannot be used.
+     */
+    private static Optional<Path> prepare(final Path directory) {
+        try {
+            if (!Files.exists(directory)) {
+                Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            }
+            if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+                return Optional.empty();
+            }
+            Path probe = Files.createTempFile(directory, "probe", ".tmp");
+            try {
+                if (!Files.getOwner(probe).equals(Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS))) {
+                    return Optional.empty();
+                }
+            } finally {
+                Files.delete(probe);
+            }
+            return Optional.of(directory);
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Cannot use {0}", directory);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Parse the content of /proc/mounts.
+     *
+     * @param lines File content.
+     * @return The mounted file systems.
+     */
+    static List<Mount> parseMounts(final List<String> lines) {
+        List<Mount> result = new ArrayList<>();
+        for (String line : lines) {
+            String[] fields = line.split(" ");
+            if (fields.length >= 4) {
+                result.add(new Mount(Path.of(fields[1].replace("\\040", " ")), fields[2], new HashSet<>(Arrays.asList(fields[3].split(",")))));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Mounted file system.
+     *
+     * @param point Mount point.
+     * @param type File system type.
+     * @param options Mount options.
+     */
+    record Mount(Path point, String type, Set<String> options) {
+    }
+}
@@ -0,0 +1,600 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Extract the native libraries bundled in the classpath to a directory.
+ * Files already extracted with the same content are not copied again, new files are written in a temporary file
+ * and then renamed, so a partially written file is never visible under its final name.
+ * When the natives are in a jar, the entries are read through the zip file system, and several files are
+ * extracted in parallel. If the directory contains a native manifest, the files and their hashes are taken from
+ * it instead of scanning and hashing the directory content.
+ * Compressed files, such as libfoo.so.gz, are decompressed while they are extracted.
+ * Every jar and directory of the classpath shipping the native directory is extracted, they are scanned in
+ * parallel and merged: a file found several times with the same content is extracted once, and when the contents
+ * differ, the first found is extracted and the conflict is reported.
+ *
+ * @author Grégory Van den Borre
+ */
+final class NativeExtractor {
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(NativeExtractor.class.getName());
+
+    /**
+     * Maximum number of files extracted at the same time.
+     */
+    private static final int MAX_WORKERS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Used to name the worker threads.
+     */
+    private static final AtomicInteger WORKER_COUNT = new AtomicInteger();
+
+    /**
+     * Name of the file locked during an extraction, in the extraction directory.
+     */
+    static final String LOCK_FILE = ".libloader.lock";
+
+    /**
+     * Number of characters of a content version.
+     */
+    private static final int VERSION_LENGTH = 16;
+
+    /**
+     * Monitors preventing two threads of this JVM to lock the same destination, as file locks are held by the
+     * whole process.
+     */
+    private static final Map<Path, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    /**
+     * Extractions running in this JVM, by destination directory, removed once complete.
+     */
+    private static final Map<Path, CompletableFuture<List<NativeConflict>>> EXTRACTIONS = new ConcurrentHashMap<>();
+
+    /**
+     * Directory where the files are extracted.
+     */
+    private final Path destination;
+
+    /**
+     * Publish the extraction measures.
+     */
+    private final LoaderMetrics metrics;
+
+    /**
+     * Names of the files to extract first, in that order.
+     */
+    private final List<String> priority;
+
+    /**
+     * Create a new instance.
+     *
+     * @param destination Directory where the files are extracted, cannot be null.
+     */
+    NativeExtractor(final Path destination) {
+        this(destination, new LoaderMetrics());
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param destination Directory where the files are extracted, cannot be null.
+     * @param metrics Publish the extraction measures, cannot be null.
+     */
+    NativeExtractor(final Path destination, final LoaderMetrics metrics) {
+        this(destination, metrics, List.of());
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param destination Directory where the files are extracted, cannot be null.
+     * @param metrics Publish the extraction measures, cannot be null.
+     * @param priority Names of the files to extract first, in that order, relative to the destination.
+     */
+    NativeExtractor(final Path destination, final LoaderMetrics metrics, final List<String> priority) {
+        super();
+        this.destination = destination;
+        this.metrics = metrics;
+        this.priority = List.copyOf(priority);
+    }
+
+    /**
+     * Extract the content of a directory from the classpath, that directory can be in several jars or directories
+     * of the file system, all of them are merged.
+     * Concurrent callers extracting to the same destination wait for the running extraction instead of starting
+     * their own. Once complete, a new call extracts again, as the sources or the destination content may have
+     * changed, the files already up to date are not copied again.
+     *
+     * @param directory Name of the directory in the classpath root.
+     * @return The files found with different contents in several sources, never null.
+     */
+    List<NativeConflict> extractFromClasspath(final String directory) {
+        Path key = this.destination.toAbsolutePath().normalize();
+        CompletableFuture<List<NativeConflict>> task = new CompletableFuture<>();
+        CompletableFuture<List<NativeConflict>> running = EXTRACTIONS.putIfAbsent(key, task);
+        if (running != null) {
+            return Futures.join(running);
+        }
+        try {
+            List<NativeConflict> conflicts = this.extractFromClasspathOnce(directory);
+            task.complete(conflicts);
+            return conflicts;
+        } catch (RuntimeException | Error e) {
+            task.completeExceptionally(e);
+            throw e;
+        } finally {
+            EXTRACTIONS.remove(key, task);
+        }
+    }
+
+    private List<NativeConflict> extractFromClasspathOnce(final String directory) {
+        return inClasspath(directory, sources -> {
+            Merge merge = merge(sources);
+            this.extract(merge.files());
+            return merge.conflicts();
+        });
+    }
+
+    /**
+     * Compute a version identifying the content of a native directory in the classpath.
+     * The version is derived from the native manifest when there is one, and from the file names and sizes
+     * otherwise.
+     *
+     * @param directory Name of the directory in the classpath root.
+     * @return The version, a short hexadecimal string.
+     */
+    static String contentVersion(final String directory) {
+        return inClasspath(directory, sources -> {
+            if (sources.size() == 1) {
+                return sourceVersion(sources.get(0));
+            }
+            StringBuilder content = new StringBuilder();
+            for (Path source : sources) {
+                content.append(sourceVersion(source)).append('\n');
+            }
+            try (InputStream in = new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8))) {
+                return ContentHash.of(in).substring(0, VERSION_LENGTH);
+            }
+        });
+    }
+
+    private static String sourceVersion(final Path source) throws IOException {
+        Path manifest = source.resolve(NativeManifest.FILE_NAME);
+        if (Files.isRegularFile(manifest)) {
+            return ContentHash.of(manifest).substring(0, VERSION_LENGTH);
+        }
+        StringBuilder content = new StringBuilder();
+        for (Item item : listFiles(source)) {
+            content.append(item.name).append('|').append(Files.size(item.path)).append('\n');
+        }
+        try (InputStream in = new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8))) {
+            return ContentHash.of(in).substring(0, VERSION_LENGTH);
+        }
+    }
+
+    /**
+     * Compute the size of the content of a directory from the classpath, as bundled, so compressed files count
+     * for their compressed size.
+     *
+     * @param directory Name of the directory in the classpath root.
+     * @return The total size of the files, in bytes.
+     */
+    static long contentSize(final String directory) {
+        return inClasspath(directory, sources -> {
+            long size = 0;
+            for (Path source : sources) {
+                for (Item item : listFiles(source)) {
+                    size += Files.size(item.path);
+                }
+            }
+            return size;
+        });
+    }
+
+    /**
+     * Run an action on all the directories of the classpath with a name, they can be in jars or in the file system.
+     *
+     * @param directory Name of the directory in the classpath root.
+     * @param action Action to run.
+     * @param <T> Action result type.
+     * @return The action result.
+     */
+    private static <T> T inClasspath(final String directory, final SourceAction<T> action) {
+        try (NativeSources sources = NativeSources.open(directory)) {
+            return action.apply(sources.getRoots());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * List the files of several sources in parallel, and merge them.
+     *
+     * @param sources Directories to merge.
+     * @return The files to extract and the conflicts.
+     * @throws IOException If a source cannot be read.
+     */
+    private static Merge merge(final List<Path> sources) throws IOException {
+        List<List<Item>> listed = new ArrayList<>(sources.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<Item>>> tasks = sources.stream()
+                    .map(s -> executor.submit(() -> listFiles(s)))
+                    .toList();
+            for (Future<List<Item>> task : tasks) {
+                listed.add(await(task));
+            }
+        }
+        if (listed.size() == 1) {
+            return new Merge(listed.get(0), List.of());
+        }
+        Map<String, List<Item>> byName = new LinkedHashMap<>();
+        for (List<Item> items : listed) {
+            for (Item item : items) {
+                if (!NativeManifest.FILE_NAME.equals(item.name)) {
+                    byName.computeIfAbsent(Compression.decompressedName(item.name), n -> new ArrayList<>()).add(item);
+                }
+            }
+        }
+        List<Item> files = new ArrayList<>(byName.size());
+        List<NativeConflict> conflicts = new ArrayList<>();
+        for (Map.Entry<String, List<Item>> entry : byName.entrySet()) {
+            List<Item> items = entry.getValue();
+            if (items.size() == 1) {
+                files.add(items.get(0));
+                continue;
+            }
+            List<Item> hashed = new ArrayList<>(items.size());
+            for (Item item : items) {
+                hashed.add(item.hash == null ? new Item(item.name, item.path, item.size, ContentHash.of(item.path)) : item);
+            }
+            files.add(hashed.get(0));
+            if (hashed.stream().map(Item::hash).distinct().count() > 1) {
+                List<URI> locations = hashed.stream().map(i -> i.path.toUri()).toList();
+                LOGGER.log(System.Logger.Level.WARNING, "{0} found with different contents in {1}, using the first one.", entry.getKey(), locations);
+                conflicts.add(new NativeConflict(entry.getKey(), locations));
+            }
+        }
+        return new Merge(files, List.copyOf(conflicts));
+    }
+
+    /**
+     * Extract all the files found in a directory, the directory can be on any file system.
+     * Files are extracted concurrently by a bounded pool of workers.
+     * The destination is locked during the extraction, so when several processes share it, only one extracts
+     * while the others wait and then find the files up to date.
+     *
+     * @param source Directory to extract.
+     * @throws IOException If a file cannot be extracted.
+     */
+    void extract(final Path source) throws IOException {
+        this.extract(listFiles(source));
+    }
+
+    /**
+     * Extract files, locking the destination.
+     * The destination native manifest is replaced by the one in the files, or removed when they have none, so a
+     * manifest left by a previous extraction never lists files that are not there anymore.
+     *
+     * @param files Files to extract.
+     * @throws IOException If a file cannot be extracted.
+     */
+    private void extract(final List<Item> files) throws IOException {
+        Files.createDirectories(this.destination);
+        Object jvmLock = JVM_LOCKS.computeIfAbsent(this.destination.toAbsolutePath().normalize(), k -> new Object());
+        synchronized (jvmLock) {
+            try (FileChannel lockChannel = FileChannel.open(this.destination.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    if (files.stream().noneMatch(i -> NativeManifest.FILE_NAME.equals(i.name))) {
+                        Files.deleteIfExists(this.destination.resolve(NativeManifest.FILE_NAME));
+                    }
+                    this.extractLocked(files);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Extract files, once the destination is locked.
+     *
+     * @param source Files to extract.
+     * @throws IOException If a file cannot be extracted.
+     */
+    private void extractLocked(final List<Item> source) throws IOException {
+        ExtractionEvent event = new ExtractionEvent();
+        event.begin();
+        long start = System.nanoTime();
+        ExtractionCache cache = ExtractionCache.load(this.destination);
+        List<Item> files = this.prioritize(source);
+        if (files.isEmpty()) {
+            this.metrics.extracted(event, this.destination, 0, 0, 0, start);
+            return;
+        }
+        AtomicInteger copied = new AtomicInteger();
+        AtomicLong bytes = new AtomicLong();
+        int workers = Math.min(files.size(), MAX_WORKERS);
+        ExecutorService executor = Executors.newFixedThreadPool(workers, NativeExtractor::newWorker);
+        try {
+            List<Future<?>> tasks = new ArrayList<>(files.size());
+            for (Item file : files) {
+                tasks.add(executor.submit(() -> {
+                    long written = this.extractFile(cache, file);
+                    if (written >= 0) {
+                        copied.incrementAndGet();
+                        bytes.addAndGet(written);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                await(task);
+            }
+        } finally {
+            executor.shutdownNow();
+            cache.save();
+        }
+        this.metrics.extracted(event, this.destination, files.size(), copied.get(), bytes.get(), start);
+        LOGGER.log(System.Logger.Level.DEBUG, "{0} native files extracted to {1}, {2} already up to date.", copied.get(), this.destination, files.size() - copied.get());
+    }
+
+    /**
+     * Order the files to extract, the priority ones first, as the workers take them in order.
+     *
+     * @param files Files to extract.
+     * @return The ordered files.
+     */
+    private List<Item> prioritize(final List<Item> files) {
+        if (this.priority.isEmpty()) {
+            return files;
+        }
+        List<Item> ordered = new ArrayList<>(files);
+        ordered.sort(Comparator.comparingInt(i -> {
+            int index = this.priority.indexOf(Compression.decompressedName(i.name()));
+            return index < 0 ? Integer.MAX_VALUE : index;
+        }));
+        return ordered;
+    }
+
+    /**
+     * List the files to extract, from the native manifest if the source has one, by walking the source otherwise.
+     *
+     * @param source Directory to extract.
+     * @return The files to extract.
+     * @throws IOException If the source cannot be read.
+     */
+    private static List<Item> listFiles(final Path source) throws IOException {
+        Optional<NativeManifest> manifest = NativeManifest.read(source);
+        if (manifest.isPresent()) {
+            List<Item> files = new ArrayList<>();
+            for (NativeManifest.Entry entry : manifest.get().getEntries()) {
+                files.add(new Item(entry.name(), source.resolve(entry.name()), entry.size(), entry.hash()));
+            }
+            files.add(new Item(NativeManifest.FILE_NAME, source.resolve(NativeManifest.FILE_NAME), -1, null));
+            return files;
+        }
+        try (Stream<Path> walk = Files.walk(source)) {
+            return walk
+                    .filter(Files::isRegularFile)
+                    .map(p -> new Item(NativeManifest.relativeName(source, p), p, -1, null))
+                    .toList();
+        }
+    }
+
+    /**
+     * Extract a single file if it is not already up to date.
+     * When the source hash is not known, it is only computed up front if the file was already extracted from a
+     * source of the same size, otherwise it is computed while the file is copied, so the source is read once.
+     *
+     * @param cache Cache of the extraction directory.
+     * @param file File to extract.
+     * @return The number of bytes copied, -1 if the existing file was reused.
+     * @throws IOException If the file cannot be extracted.
+     */
+    private long extractFile(final ExtractionCache cache, final Item file) throws IOException {
+        long size = file.size < 0 ? Files.size(file.path) : file.size;
+        Compression compression = Compression.of(file.name);
+        String name = Compression.decompressedName(file.name);
+        String hash = file.hash;
+        if (hash == null && cache.isIntact(name, size)) {
+            hash = ContentHash.of(file.path);
+        }
+        if (hash != null && cache.isUpToDate(name, size, hash)) {
+            return -1;
+        }
+        MessageDigest digest = hash == null ? ContentHash.newDigest() : null;
+        long written = compression == Compression.NONE
+                ? copy(file.path, this.destination.resolve(name), digest)
+                : decompress(file.path, this.destination.resolve(name), compression, digest);
+        cache.update(name, size, hash == null ? ContentHash.of(digest) : hash);
+        return written;
+    }
+
+    /**
+     * Copy a file to a temporary file next to its target, and then rename it to the target.
+     * Without digest, the content is transferred channel to channel, without going through a heap buffer when
+     * the file system supports it.
+     *
+     * @param source File to copy.
+     * @param target Final file.
+     * @param digest Digest to feed with the source content, null if the content hash is already known.
+     * @return The number of bytes written.
+     * @throws IOException If the copy fails.
+     */
+    private static long copy(final Path source, final Path target, final MessageDigest digest) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            long size;
+            if (digest != null) {
+                try (InputStream in = new DigestInputStream(Files.newInputStream(source), digest)) {
+                    size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } else {
+                try (SeekableByteChannel in = Files.newByteChannel(source, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        long transferred = out.transferFrom(in, position, size - position);
+                        if (transferred <= 0) {
+                            throw new IOException("Unexpected end of file while copying " + source);
+                        }
+                        position += transferred;
+                    }
+                }
+            }
+            ExtractionCache.moveAtomically(temp, target);
+            return size;
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Decompress a file, streaming, to a temporary file next to its target, and then rename it to the target.
+     *
+     * @param source Compressed file.
+     * @param target Final decompressed file.
+     * @param compression Compression of the source.
+     * @param digest Digest to feed with the compressed source content, null if the content hash is already known.
+     * @return The number of bytes written.
+     * @throws IOException If the decompression fails.
+     */
+    private static long decompress(final Path source, final Path target, final Compression compression, final MessageDigest digest) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            long size;
+            InputStream raw = digest == null ? Files.newInputStream(source) : new DigestInputStream(Files.newInputStream(source), digest);
+            try (InputStream in = compression.decompress(raw)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                raw.transferTo(OutputStream.nullOutputStream());
+            }
+            ExtractionCache.moveAtomically(temp, target);
+            return size;
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for an extraction task to complete.
+     *
+     * @param task Task to wait for.
+     * @param <T> Task result type.
+     * @return The task result.
+     * @throws IOException If the task failed.
+     */
+    private static <T> T await(final Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Extraction interrupted.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static Thread newWorker(final Runnable task) {
+        Thread thread = new Thread(task, "libloader-extract-" + WORKER_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Action run on the native directories of the classpath.
+     *
+     * @param <T> Result type.
+     */
+    @FunctionalInterface
+    private interface SourceAction<T> {
+
+        T apply(List<Path> sources) throws IOException;
+    }
+
+    /**
+     * Files merged from several sources.
+     *
+     * @param files Files to extract.
+     * @param conflicts Files found with different contents.
+     */
+    private record Merge(List<Item> files, List<NativeConflict> conflicts) {
+    }
+
+    /**
+     * A file to extract.
+     *
+     * @param name Name relative to the extraction directory, using / as separator.
+     * @param path Path of the file in the source.
+     * @param size Size of the file, negative if unknown.
+     * @param hash Content hash of the file, null if unknown.
+     */
+    private record Item(String name, Path path, long size, String hash) {
+    }
+}
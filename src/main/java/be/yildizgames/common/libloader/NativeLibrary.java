@@ -0,0 +1,244 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Handle on a native library opened with the foreign function and memory API.
+ * The library stays loaded as long as the arena it was opened in is alive, when that arena is closed, the library
+ * is unloaded and its symbols and downcall handles can no longer be used.
+ * Downcall handles are linked once per symbol and descriptor, and then reused.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class NativeLibrary implements AutoCloseable {
+
+    /**
+     * Linker for the current platform.
+     */
+    private static final Linker LINKER = Linker.nativeLinker();
+
+    /**
+     * Type of the bound handles, adapted once when bound, so calling them does not adapt the arguments again.
+     */
+    private static final MethodType SPREAD = MethodType.methodType(Object.class, Object[].class);
+
+    /**
+     * Arguments of the bound methods without parameter.
+     */
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    /**
+     * File name of the library.
+     */
+    private final String name;
+
+    /**
+     * Absolute path of the library.
+     */
+    private final String path;
+
+    /**
+     * Arena the library is opened in.
+     */
+    private final Arena arena;
+
+    /**
+     * True if the arena has been created for this library and must be closed with it.
+     */
+    private final boolean ownArena;
+
+    /**
+     * Lookup for the library symbols.
+     */
+    private final SymbolLookup lookup;
+
+    /**
+     * Downcall handles already linked.
+     */
+    private final Map<Downcall, MethodHandle> downcalls = new ConcurrentHashMap<>();
+
+    NativeLibrary(String name, String path, Arena arena, boolean ownArena, SymbolLookup lookup) {
+        super();
+        this.name = name;
+        this.path = path;
+        this.arena = arena;
+        this.ownArena = ownArena;
+        this.lookup = lookup;
+    }
+
+    /**
+     * Find a symbol in the library.
+     *
+     * @param symbol Symbol name, cannot be null.
+     * @return The symbol address, empty if the library has no such symbol.
+     */
+    public Optional<MemorySegment> find(final String symbol) {
+        return this.lookup.find(symbol);
+    }
+
+    /**
+     * Find a symbol in the library, that symbol is expected to exist.
+     *
+     * @param symbol Symbol name, cannot be null.
+     * @return The symbol address.
+     * @throws IllegalStateException If the library has no such symbol.
+     */
+    public MemorySegment lookup(final String symbol) {
+        return this.find(symbol).orElseThrow(() -> new IllegalStateException(symbol + " not found in " + this.path));
+    }
+
+    /**
+     * Provide a method handle calling a native function of this library.
+     * The handle is linked on first request and cached, so this method is cheap to call repeatedly, but keeping
+     * the handle in a static final field is still the fastest way to call it.
+     *
+     * @param symbol Function name, cannot be null.
+     * @param descriptor Function signature, cannot be null.
+     * @return The downcall method handle.
+     * @throws IllegalStateException If the library has no such symbol.
+     */
+    public MethodHandle downcall(final String symbol, final FunctionDescriptor descriptor) {
+        return this.downcalls.computeIfAbsent(new Downcall(symbol, descriptor),
+                d -> LINKER.downcallHandle(this.lookup(d.symbol()), d.descriptor()));
+    }
+
+    /**
+     * Bind all the abstract methods of an interface to the native functions of this library.
+     * Each method is bound to the symbol with the same name, or the one given by {@link NativeSymbol}, with a
+     * descriptor built from its signature: parameters and return type must be primitives or MemorySegment.
+     * All the functions are linked immediately, so a missing symbol fails here and not on first call.
+     * This is a convenience for functions called occasionally: each call still goes through a proxy, with its
+     * arguments boxed in an array. For functions on a hot path, keep the handle from
+     * {@link #downcall(String, FunctionDescriptor)} in a static final field and call it with invokeExact.
+     *
+     * @param api Interface to implement, cannot be null.
+     * @param <T> Interface type.
+     * @return An implementation of the interface calling the native functions.
+     * @throws IllegalStateException If a symbol cannot be found.
+     * @throws IllegalArgumentException If the type is not an interface or a method uses an unsupported type.
+     */
+    public <T> T bind(final Class<T> api) {
+        if (!api.isInterface()) {
+            throw new IllegalArgumentException(api.getName() + " is not an interface.");
+        }
+        Map<Method, MethodHandle> handles = new HashMap<>();
+        for (Method method : api.getMethods()) {
+            if (Modifier.isAbstract(method.getModifiers())) {
+                NativeSymbol symbol = method.getAnnotation(NativeSymbol.class);
+                String name = symbol == null ? method.getName() : symbol.value();
+                MethodHandle handle = this.downcall(name, FunctionDescriptors.of(method));
+                handles.put(method, handle.asSpreader(Object[].class, method.getParameterCount()).asType(SPREAD));
+            }
+        }
+        InvocationHandler handler = (proxy, method, args) -> {
+            MethodHandle handle = handles.get(method);
+            if (handle != null) {
+                return (Object) handle.invokeExact(args == null ? NO_ARGUMENTS : args);
+            }
+            if (method.isDefault()) {
+                return InvocationHandler.invokeDefault(proxy, method, args);
+            }
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "toString" -> api.getName() + " bound to " + this.path;
+                default -> throw new UnsupportedOperationException(method.toString());
+            };
+        };
+        return api.cast(Proxy.newProxyInstance(api.getClassLoader(), new Class<?>[]{api}, handler));
+    }
+
+    /**
+     * Provide the symbol lookup of this library, to be used with the foreign function API.
+     *
+     * @return The library symbol lookup.
+     */
+    public SymbolLookup getSymbolLookup() {
+        return this.lookup;
+    }
+
+    /**
+     * Provide the arena holding this library.
+     *
+     * @return The arena the library has been opened in.
+     */
+    public Arena getArena() {
+        return this.arena;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public String getPath() {
+        return this.path;
+    }
+
+    /**
+     * Check if the library is still loaded.
+     *
+     * @return true if the arena holding the library is still alive.
+     */
+    public boolean isOpen() {
+        return this.arena.scope().isAlive();
+    }
+
+    /**
+     * Unload the library if it has been opened in its own arena, if the arena has been provided by the caller,
+     * closing that arena is the caller responsibility.
+     */
+    @Override
+    public void close() {
+        if (this.ownArena && this.isOpen()) {
+            this.downcalls.clear();
+            this.arena.close();
+        }
+    }
+
+    /**
+     * Key of a cached downcall handle.
+     *
+     * @param symbol Function name.
+     * @param descriptor Function signature.
+     */
+    private record Downcall(String symbol, FunctionDescriptor descriptor) {
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Receive the measures of the loader phases, to publish them in a metrics system.
+ * Implementations can be registered on a loader, or declared as a service to receive the measures of every loader,
+ * including the extraction done while a loader is created.
+ * Implementations are called from the thread doing the work and must be thread safe and fast.
+ *
+ * @author Grégory Van den Borre
+ */
+public interface NativeLoaderListener {
+
+    /**
+     * Called when a native directory has been extracted.
+     *
+     * @param destination Directory where the files are extracted.
+     * @param files Number of files in the extracted directory.
+     * @param copied Number of files actually copied, the others were already up to date.
+     * @param bytes Number of bytes copied.
+     * @param duration Time spent extracting.
+     */
+    default void onExtraction(Path destination, int files, int copied, long bytes, Duration duration) {
+        // Nothing by default.
+    }
+
+    /**
+     * Called when a libraries directory has been registered.
+     *
+     * @param directory Registered directory.
+     * @param scanned Number of entries read, files walked or manifest entries.
+     * @param registered Number of libraries registered.
+     * @param duration Time spent registering.
+     */
+    default void onRegistration(Path directory, int scanned, int registered, Duration duration) {
+        // Nothing by default.
+    }
+
+    /**
+     * Called when a libraries directory cannot be registered, the loader will then have no registered libraries.
+     *
+     * @param directory Directory that failed to be registered.
+     * @param error Failure cause.
+     */
+    default void onRegistrationFailure(Path directory, IOException error) {
+        // Nothing by default.
+    }
+
+    /**
+     * Called when a library has been loaded or failed to be loaded.
+     *
+     * @param path Path of the library.
+     * @param duration Time spent in System.load.
+     * @param error Failure cause, null if the library was successfully loaded.
+     */
+    default void onLoad(String path, Duration duration, Throwable error) {
+        // Nothing by default.
+    }
+}
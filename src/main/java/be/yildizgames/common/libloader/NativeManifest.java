@@ -0,0 +1,175 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Index of the native files of an OS directory, generated at build time and stored next to the natives.
+ * It lists the name, size and content hash of every file, so the runtime does not need to walk the directory
+ * nor hash the files to know what it contains.
+ *
+ * @author Grégory Van den Borre
+ */
+final class NativeManifest {
+
+    /**
+     * Name of the manifest file, in the OS directory.
+     */
+    static final String FILE_NAME = "natives.idx";
+
+    /**
+     * First line of the manifest, identify the format version.
+     */
+    private static final String HEADER = "# yildiz native manifest v1";
+
+    /**
+     * Separator used between the fields of an entry line.
+     */
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Files listed in the manifest.
+     */
+    private final List<Entry> entries;
+
+    private NativeManifest(List<Entry> entries) {
+        super();
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Read the manifest of a directory.
+     *
+     * @param directory Directory holding the manifest, can be on any file system.
+     * @return The manifest, empty if the directory has none.
+     * @throws IOException If the manifest exists but cannot be read.
+     */
+    static Optional<NativeManifest> read(final Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !HEADER.equals(lines.get(0))) {
+            throw new IOException("Unsupported native manifest format in " + file);
+        }
+        List<Entry> entries = new ArrayList<>(lines.size() - 1);
+        for (String line : lines.subList(1, lines.size())) {
+            String[] values = line.split("\\" + SEPARATOR);
+            if (values.length != 3) {
+                throw new IOException("Invalid native manifest line '" + line + "' in " + file);
+            }
+            try {
+                entries.add(new Entry(values[0], Long.parseLong(values[1]), values[2]));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid native manifest line '" + line + "' in " + file, e);
+            }
+        }
+        return Optional.of(new NativeManifest(entries));
+    }
+
+    /**
+     * Build the manifest of a directory by walking it and hashing every file.
+     *
+     * @param directory Directory to index.
+     * @return The built manifest.
+     * @throws IOException If the directory cannot be read.
+     */
+    static NativeManifest build(final Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.filter(Files::isRegularFile).sorted().toList();
+        }
+        List<Entry> entries = new ArrayList<>(files.size());
+        for (Path file : files) {
+            String name = relativeName(directory, file);
+            if (!FILE_NAME.equals(name) && !ExtractionCache.INDEX_FILE.equals(name) && !NativeExtractor.LOCK_FILE.equals(name)) {
+                entries.add(new Entry(name, Files.size(file), ContentHash.of(file)));
+            }
+        }
+        return new NativeManifest(entries);
+    }
+
+    /**
+     * Write the manifest in a directory.
+     *
+     * @param directory Directory where the manifest is written.
+     * @throws IOException If the manifest cannot be written.
+     */
+    void write(final Path directory) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(FILE_NAME), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Entry entry : this.entries) {
+                writer.write(entry.name() + SEPARATOR + entry.size() + SEPARATOR + entry.hash());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Provide the files listed in this manifest.
+     *
+     * @return The listed files, never null.
+     */
+    List<Entry> getEntries() {
+        return this.entries;
+    }
+
+    /**
+     * Build the name of a file relative to a root, using / as separator whatever the file system.
+     *
+     * @param root Root directory.
+     * @param file File in the root directory.
+     * @return The relative name.
+     */
+    static String relativeName(final Path root, final Path file) {
+        return StreamSupport.stream(root.relativize(file).spliterator(), false)
+                .map(Path::toString)
+                .collect(Collectors.joining("/"));
+    }
+
+    /**
+     * A file listed in the manifest.
+     *
+     * @param name Name of the file, relative to the OS directory, using / as separator.
+     * @param size Size of the file.
+     * @param hash Content hash of the file.
+     */
+    record Entry(String name, long size, String hash) {
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Build step writing the native manifest in the OS directories of a project, to be run once the natives are
+ * copied in the build output, for example with the exec-maven-plugin in the process-classes phase.
+ * With that manifest, the loader registers and extracts the libraries without scanning the jar or walking the
+ * installation directory.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class NativeManifestGenerator {
+
+    private NativeManifestGenerator() {
+        super();
+    }
+
+    /**
+     * Generate the manifest for every directory provided.
+     *
+     * @param args OS directories to index, for example target/classes/linux64.
+     * @throws IOException If a manifest cannot be generated.
+     */
+    public static void main(String[] args) throws IOException {
+        for (String arg : args) {
+            Path directory = Path.of(arg);
+            if (Files.isDirectory(directory)) {
+                generate(directory);
+            } else {
+                System.getLogger(NativeManifestGenerator.class.getName())
+                        .log(System.Logger.Level.WARNING, "{0} is not a directory, no manifest generated.", directory);
+            }
+        }
+    }
+
+    /**
+     * Generate the manifest of an OS directory, an existing manifest is replaced.
+     *
+     * @param directory Directory holding the natives, cannot be null.
+     * @throws IOException If the directory cannot be read or the manifest cannot be written.
+     */
+    public static void generate(final Path directory) throws IOException {
+        NativeManifest.build(directory).write(directory);
+    }
+}
@@ -0,0 +1,613 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Registry of the native libraries available in a directory.
+ * The directory is only read on the first lookup, and every resolved name, found or not, is memoized so
+ * repeated lookups do not touch the file system.
+ * Libraries in a {@link CpuVariant} sub directory are registered in place of the base ones when the variant is
+ * usable, the fastest usable variant wins, and ignored otherwise.
+ * Every candidate ELF library is checked against the running JVM while registering, libraries built for another
+ * architecture, or truncated, are rejected instead of failing later in the dynamic linker.
+ * Versioned libraries, such as libfoo.so.1.2.3, are registered too, links are resolved to their target while
+ * registering, and a version index allows to find the newest version of a library by its base name.
+ *
+ * @author Grégory Van den Borre
+ */
+final class NativeRegistry {
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(NativeRegistry.class.getName());
+
+    /**
+     * Directory holding the libraries.
+     */
+    private final Path directory;
+
+    /**
+     * Library file extension.
+     */
+    private final String extension;
+
+    /**
+     * Publish the registration measures.
+     */
+    private final LoaderMetrics metrics;
+
+    /**
+     * Usable CPU variants, the fastest first.
+     */
+    private final List<CpuVariant> variants;
+
+    /**
+     * Library file names, with or without version.
+     */
+    private final Pattern libraryName;
+
+    /**
+     * Resolved library names, with their path, or empty if not found.
+     */
+    private final Map<String, Optional<String>> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * Registered library paths by file name, null until first used.
+     */
+    private volatile Map<String, String> libraries;
+
+    /**
+     * Registered library paths by SONAME, null until first used.
+     */
+    private volatile Map<String, String> sonames;
+
+    /**
+     * Libraries rejected during the last registration.
+     */
+    private volatile List<RejectedLibrary> rejected = List.of();
+
+    /**
+     * Registered libraries by base name and version, null until first used.
+     */
+    private volatile VersionIndex versions;
+
+    /**
+     * Incremented each time the registered libraries change, a resolution started before a change is not memoized.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Create a new instance, nothing is read until the first lookup.
+     *
+     * @param directory Directory holding the libraries.
+     * @param extension Library file extension.
+     */
+    NativeRegistry(final Path directory, final String extension) {
+        this(directory, extension, new LoaderMetrics());
+    }
+
+    /**
+     * Create a new instance, nothing is read until the first lookup.
+     *
+     * @param directory Directory holding the libraries.
+     * @param extension Library file extension.
+     * @param metrics Publish the registration measures.
+     */
+    NativeRegistry(final Path directory, final String extension, final LoaderMetrics metrics) {
+        this(directory, extension, metrics, CpuVariant.available());
+    }
+
+    /**
+     * Create a new instance, nothing is read until the first lookup.
+     *
+     * @param directory Directory holding the libraries.
+     * @param extension Library file extension.
+     * @param metrics Publish the registration measures.
+     * @param variants Usable CPU variants, the fastest first.
+     */
+    NativeRegistry(final Path directory, final String extension, final LoaderMetrics metrics, final List<CpuVariant> variants) {
+        super();
+        this.directory = directory;
+        this.extension = extension;
+        this.metrics = metrics;
+        this.variants = List.copyOf(variants);
+        this.libraryName = VersionIndex.pattern(extension);
+    }
+
+    /**
+     * Resolve a library name to its path, the name can be a registered library file name, with or without
+     * extension, or a path to an existing file.
+     * A bare name is looked up in the registered libraries first, and then as a file in the working directory.
+     *
+     * @param lib Library to resolve, cannot be null.
+     * @return The absolute library path, empty if not found.
+     */
+    Optional<String> resolve(final String lib) {
+        return this.memoize(lib, () -> this.lookup(lib));
+    }
+
+    /**
+     * Provide the memoized resolution of a key, or resolve and memoize it.
+     * The resolution is not done inside the map computation, as it reads the file system and takes this
+     * registry monitor, which would block, or deadlock with, a refresh clearing the map.
+     *
+     * @param key Memoized key.
+     * @param lookup Resolve the key.
+     * @return The resolved path, empty if not found.
+     */
+    private Optional<String> memoize(final String key, final Supplier<Optional<String>> lookup) {
+        Optional<String> result = this.resolved.get(key);
+        if (result != null) {
+            return result;
+        }
+        long current = this.generation.get();
+        result = lookup.get();
+        if (current == this.generation.get()) {
+            Optional<String> previous = this.resolved.putIfAbsent(key, result);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return result;
+    }
+
+    private Optional<String> lookup(final String lib) {
+        Path f = Path.of(this.isLibrary(lib) ? lib : lib + this.extension);
+        if (f.getParent() == null) {
+            String registered = this.getLibraries().get(f.toString());
+            if (registered != null) {
+                return Optional.of(registered);
+            }
+        }
+        if (Files.exists(f)) {
+            return Optional.of(f.toAbsolutePath().toString());
+        }
+        if (Path.of(lib).getParent() == null) {
+            return this.getVersions().find(lib, null);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Resolve a library base name and version to the newest matching registered library.
+     *
+     * @param lib Library base name, with or without lib prefix, such as foo or libfoo, cannot be null.
+     * @param version Version prefix, such as 1 or 1.2, null for the newest version.
+     * @return The absolute library path, empty if not found.
+     * @throws IllegalArgumentException If the version is not a dotted number.
+     */
+    Optional<String> resolve(final String lib, final String version) {
+        if (version == null) {
+            return this.resolve(lib);
+        }
+        return this.memoize(lib + '\u0000' + version, () -> this.getVersions().find(lib, version));
+    }
+
+    /**
+     * Provide the version index of the registered libraries, built on first use from the registered names.
+     *
+     * @return The version index.
+     */
+    private VersionIndex getVersions() {
+        VersionIndex result = this.versions;
+        if (result == null) {
+            Map<String, String> registered = this.getLibraries();
+            synchronized (this) {
+                result = this.versions;
+                if (result == null) {
+                    result = VersionIndex.build(registered, this.extension, p -> ElfFile.read(Path.of(p)).flatMap(ElfFile::getSoname));
+                    this.versions = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check if a file name is a library name.
+     *
+     * @param name File name.
+     * @return true for libfoo.so or libfoo.so.1.2.3 when the extension is .so.
+     */
+    private boolean isLibrary(final String name) {
+        return name.endsWith(this.extension) || this.libraryName.matcher(name).matches();
+    }
+
+    /**
+     * Resolve a name found in a DT_NEEDED entry to a registered library.
+     *
+     * @param name Needed library name, usually its SONAME.
+     * @return The registered library path, null if not found.
+     */
+    String resolveNeeded(final String name) {
+        String path = this.getLibraries().get(name);
+        if (path != null) {
+            return path;
+        }
+        return this.getSonames().get(name);
+    }
+
+    /**
+     * Forget the memoized resolution of a library name, the next lookup of that name will be resolved again.
+     *
+     * @param lib Library name to forget.
+     */
+    void invalidate(final String lib) {
+        this.generation.incrementAndGet();
+        this.resolved.remove(lib);
+    }
+
+    /**
+     * Provide the generation of the registered libraries, changed each time they are refreshed, invalidated or
+     * updated, so caches built from them can detect they are stale.
+     *
+     * @return The current generation.
+     */
+    long getGeneration() {
+        return this.generation.get();
+    }
+
+    /**
+     * Forget everything, the directory will be read again on the next lookup.
+     */
+    void refresh() {
+        synchronized (this) {
+            this.forget();
+        }
+        this.resolved.clear();
+    }
+
+    /**
+     * Drop the registered libraries and their indexes, must be called holding this registry monitor.
+     * The memoized resolutions must be cleared by the caller, once the monitor is released.
+     */
+    private void forget() {
+        this.libraries = null;
+        this.sonames = null;
+        this.versions = null;
+        this.generation.incrementAndGet();
+    }
+
+    /**
+     * Apply changes of library files to the registry, only the changed names are looked up again instead of
+     * reading the whole directory.
+     * Nothing is done if the directory has not been read yet. A change of the native manifest makes everything
+     * read again on next lookup. When the directory has a native manifest, the changes of the files it lists are
+     * ignored, as the manifest is the reference for them, the other files are applied as without manifest.
+     *
+     * @param changes Created, modified or deleted files, or deleted directories.
+     */
+    void update(final Collection<Path> changes) {
+        Set<String> changedPaths = new HashSet<>();
+        synchronized (this) {
+            Map<String, String> current = this.libraries;
+            if (current == null) {
+                return;
+            }
+            if (changes.stream().anyMatch(p -> NativeManifest.FILE_NAME.equals(p.getFileName().toString()))) {
+                this.forget();
+                changedPaths = null;
+            } else {
+                this.apply(current, this.unlisted(changes), changedPaths);
+            }
+        }
+        if (changedPaths == null) {
+            this.resolved.clear();
+        } else {
+            Set<String> removed = changedPaths;
+            this.resolved.values().removeIf(r -> r.isEmpty() || removed.contains(r.get()));
+        }
+    }
+
+    /**
+     * Remove the changes of the files listed in the native manifest of the directory, if it has one.
+     *
+     * @param changes Created, modified or deleted files, or deleted directories.
+     * @return The changes of the files not listed in the manifest.
+     */
+    private Collection<Path> unlisted(final Collection<Path> changes) {
+        Optional<NativeManifest> manifest;
+        try {
+            manifest = NativeManifest.read(this.directory);
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Cannot read native manifest of " + this.directory, e);
+            return changes;
+        }
+        if (manifest.isEmpty()) {
+            return changes;
+        }
+        Set<String> listed = new HashSet<>();
+        manifest.get().getEntries().forEach(e -> listed.add(Compression.decompressedName(e.name())));
+        Path root = this.directory.toAbsolutePath();
+        List<Path> result = new ArrayList<>(changes.size());
+        for (Path change : changes) {
+            Path absolute = change.toAbsolutePath();
+            if (absolute.startsWith(root) && listed.contains(NativeManifest.relativeName(root, absolute))) {
+                LOGGER.log(System.Logger.Level.DEBUG, "Change of {0} ignored, listed in the native manifest.", absolute);
+            } else {
+                result.add(change);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Register again the libraries of the changed files, must be called holding this registry monitor.
+     *
+     * @param current Registered library paths by file name, updated.
+     * @param changes Created, modified or deleted files, or deleted directories.
+     * @param changedPaths Filled with the paths registered or unregistered, the memoized resolutions to these
+     *                     paths are stale.
+     */
+    private void apply(final Map<String, String> current, final Collection<Path> changes, final Set<String> changedPaths) {
+        Map<String, Set<Path>> byName = new HashMap<>();
+        for (Path change : changes) {
+            Path absolute = change.toAbsolutePath();
+            String name = absolute.getFileName().toString();
+            if (this.isLibrary(name)) {
+                changedPaths.add(absolute.toString());
+                byName.computeIfAbsent(name, n -> new LinkedHashSet<>()).add(absolute);
+            } else {
+                current.forEach((n, p) -> {
+                    if (Path.of(p).startsWith(absolute)) {
+                        byName.computeIfAbsent(n, k -> new LinkedHashSet<>());
+                    }
+                });
+            }
+        }
+        List<RejectedLibrary> rejections = new ArrayList<>(this.rejected);
+        rejections.removeIf(r -> byName.containsKey(r.name()));
+        for (Map.Entry<String, Set<Path>> entry : byName.entrySet()) {
+            String name = entry.getKey();
+            Map<String, String> selected = new HashMap<>();
+            Map<String, Integer> ranks = new HashMap<>();
+            Set<Path> candidates = new LinkedHashSet<>();
+            candidates.add(this.directory.resolve(name));
+            this.variants.forEach(v -> candidates.add(this.directory.resolve(v.getDirectory()).resolve(name)));
+            candidates.addAll(entry.getValue());
+            candidates.stream()
+                    .filter(Files::isRegularFile)
+                    .forEach(c -> this.add(selected, ranks, rejections, c.toAbsolutePath()));
+            String previous = selected.containsKey(name) ? current.put(name, selected.get(name)) : current.remove(name);
+            this.updateSoname(previous, selected.get(name));
+            if (previous != null) {
+                changedPaths.add(previous);
+            }
+        }
+        this.rejected = List.copyOf(rejections);
+        this.versions = null;
+        this.generation.incrementAndGet();
+        LOGGER.log(System.Logger.Level.DEBUG, "Registry updated for {0}", byName.keySet());
+    }
+
+    private void updateSoname(final String previous, final String path) {
+        Map<String, String> index = this.sonames;
+        if (index == null) {
+            return;
+        }
+        if (previous != null) {
+            index.values().removeIf(previous::equals);
+        }
+        if (path != null) {
+            ElfFile.read(Path.of(path)).flatMap(ElfFile::getSoname).ifPresent(n -> index.putIfAbsent(n, path));
+        }
+    }
+
+    /**
+     * Provide the registered libraries, the directory is read on first call.
+     *
+     * @return The registered library paths by file name.
+     */
+    Map<String, String> getLibraries() {
+        Map<String, String> result = this.libraries;
+        if (result == null) {
+            synchronized (this) {
+                result = this.libraries;
+                if (result == null) {
+                    result = new ConcurrentHashMap<>();
+                    List<RejectedLibrary> rejections = new ArrayList<>();
+                    RegistrationEvent event = new RegistrationEvent();
+                    event.begin();
+                    long start = System.nanoTime();
+                    try {
+                        int scanned = this.register(result, rejections);
+                        event.rejected = rejections.size();
+                        this.metrics.registered(event, this.directory, scanned, result.size(), start);
+                    } catch (IOException e) {
+                        LOGGER.log(System.Logger.Level.ERROR, "Cannot register libs", e);
+                        result.clear();
+                        rejections.clear();
+                        this.metrics.registrationFailed(event, this.directory, e);
+                    }
+                    this.rejected = List.copyOf(rejections);
+                    this.libraries = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Provide the libraries found but not registered because they cannot be loaded, the directory is read on
+     * first call.
+     *
+     * @return The rejected libraries, never null.
+     */
+    List<RejectedLibrary> getRejected() {
+        this.getLibraries();
+        return this.rejected;
+    }
+
+    /**
+     * Index the registered libraries by their SONAME, built on first use as it requires reading every library.
+     *
+     * @return The registered library paths by SONAME.
+     */
+    private Map<String, String> getSonames() {
+        Map<String, String> result = this.sonames;
+        if (result == null) {
+            Map<String, String> registered = this.getLibraries();
+            synchronized (this) {
+                result = this.sonames;
+                if (result == null) {
+                    result = new ConcurrentHashMap<>();
+                    for (String path : registered.values()) {
+                        Map<String, String> index = result;
+                        ElfFile.read(Path.of(path)).flatMap(ElfFile::getSoname).ifPresent(n -> index.putIfAbsent(n, path));
+                    }
+                    this.sonames = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Register the found libraries in the directory.
+     * If the directory contains a native manifest, the libraries are registered from it, otherwise, or when a
+     * library it lists is missing, the directory is walked.
+     *
+     * @param result Map to fill with the library paths by file name.
+     * @param rejections List to fill with the libraries that cannot be loaded.
+     * @return The number of entries read.
+     */
+    private int register(final Map<String, String> result, final List<RejectedLibrary> rejections) throws IOException {
+        LOGGER.log(System.Logger.Level.DEBUG, "Usable cpu variants: {0}", this.variants);
+        Map<String, Integer> ranks = new HashMap<>();
+        Optional<NativeManifest> manifest = NativeManifest.read(this.directory);
+        if (manifest.isPresent()) {
+            List<NativeManifest.Entry> entries = manifest.get().getEntries();
+            List<Path> libraries = entries.stream()
+                    .map(NativeManifest.Entry::name)
+                    .map(Compression::decompressedName)
+                    .filter(this::isLibrary)
+                    .map(this.directory::resolve)
+                    .toList();
+            Optional<Path> missing = libraries.stream().filter(p -> !Files.isRegularFile(p)).findFirst();
+            if (missing.isEmpty()) {
+                libraries.forEach(p -> this.add(result, ranks, rejections, p));
+                return entries.size();
+            }
+            LOGGER.log(System.Logger.Level.WARNING, "{0} is listed in the native manifest but not found, walking {1} instead.", missing.get(), this.directory);
+        }
+        if (!Files.isDirectory(this.directory)) {
+            return 0;
+        }
+        int scanned = 0;
+        try (Stream<Path> walk = Files.walk(this.directory)) {
+            for (Path p : (Iterable<Path>) walk::iterator) {
+                scanned++;
+                if (Files.isRegularFile(p) && this.isLibrary(p.getFileName().toString())) {
+                    this.add(result, ranks, rejections, p.toAbsolutePath());
+                }
+            }
+        }
+        return scanned;
+    }
+
+    /**
+     * Register a library, unless it is built for an unusable CPU variant, a library with the same name is
+     * already registered for a faster variant, or it cannot be loaded.
+     *
+     * @param result Map to fill with the library paths by file name.
+     * @param ranks Rank of the registered libraries by file name, lower is faster.
+     * @param rejections List to fill with the libraries that cannot be loaded.
+     * @param path Library path.
+     */
+    private void add(final Map<String, String> result, final Map<String, Integer> ranks,
+                     final List<RejectedLibrary> rejections, final Path path) {
+        int rank = this.rank(path);
+        if (rank < 0) {
+            return;
+        }
+        String name = path.getFileName().toString();
+        Integer current = ranks.get(name);
+        if (current == null || rank < current) {
+            Path target = resolveLink(path);
+            Optional<String> incompatibility = ElfFile.checkCompatibility(target);
+            if (incompatibility.isPresent()) {
+                LOGGER.log(System.Logger.Level.WARNING, "Rejected {0}: {1}", path, incompatibility.get());
+                rejections.add(new RejectedLibrary(name, path.toString(), incompatibility.get()));
+                return;
+            }
+            ranks.put(name, rank);
+            result.put(name, target.toString());
+        }
+    }
+
+    /**
+     * Resolve a link to its final target, so the names linking to the same file are registered with the same path.
+     *
+     * @param path Library path.
+     * @return The link target, or the path itself if it is not a link.
+     */
+    private static Path resolveLink(final Path path) {
+        if (!Files.isSymbolicLink(path)) {
+            return path;
+        }
+        try {
+            return path.toRealPath();
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Cannot resolve link {0}", path);
+            return path;
+        }
+    }
+
+    /**
+     * Rank a library by the CPU variant it is built for.
+     *
+     * @param path Library path.
+     * @return The variant position in the usable ones, the number of usable variants for a base library, or -1 if
+     * the variant is not usable.
+     */
+    private int rank(final Path path) {
+        Path relative = this.directory.toAbsolutePath().relativize(path.toAbsolutePath());
+        if (relative.getNameCount() < 2) {
+            return this.variants.size();
+        }
+        return CpuVariant.fromDirectory(relative.getName(0).toString())
+                .map(this.variants::indexOf)
+                .orElse(this.variants.size());
+    }
+}
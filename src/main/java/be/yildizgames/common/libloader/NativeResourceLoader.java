@@ -30,20 +30,25 @@ import be.yildizgames.common.os.SystemUtil;
 import be.yildizgames.common.os.factory.OperatingSystems;
 
 import java.io.File;
-import java.io.IOException;
-import java.lang.reflect.Field;
-import java.nio.file.Files;
+import java.lang.foreign.Arena;
+import java.lang.foreign.SymbolLookup;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.Vector;
-import java.util.stream.Stream;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * Utility class to load the native library from the classpath or a jar.
+ * Instances are thread safe, each library is extracted and loaded only once, whatever the number of threads
+ * asking for it.
  *
  * @author Grégory Van den Borre
  */
@@ -54,6 +59,18 @@ public final class NativeResourceLoader {
      */
     private static final System.Logger LOGGER = System.getLogger(NativeResourceLoader.class.getName());
 
+    /**
+     * Default executor for the background tasks, run each task in its own virtual thread.
+     */
+    private static final Executor VIRTUAL_THREADS = task -> Thread.ofVirtual().name("libloader-", 0).start(task);
+
+    /**
+     * System property enabling the startup profile: the loaded libraries are recorded in a profile file next to
+     * the libraries directory, and on the next start, those libraries are extracted first and prefetched in the
+     * page cache in background.
+     */
+    public static final String PROFILE_PROPERTY = "yildiz.libloader.profile";
+
     /**
      * Directory containing the native libraries, win34,
      * linux64 depending on the operating system and the underlying
@@ -71,10 +88,35 @@ public final class NativeResourceLoader {
      */
     public final String libraryExtension;
 
+    /**
+     * Publish the measures of the extraction, registration and loading.
+     */
+    private final LoaderMetrics metrics = new LoaderMetrics();
+
     /**
      * Contains the found native libraries and their full path.
      */
-    private final Map<String, String> availableLib = new HashMap<>();
+    private final NativeRegistry availableLib;
+
+    /**
+     * Dependencies between the registered libraries.
+     */
+    private final DependencyGraph dependencies;
+
+    /**
+     * Libraries loaded or being loaded by this loader, by path.
+     */
+    private final Map<String, CompletableFuture<LoadedLibrary>> loaded = new ConcurrentHashMap<>();
+
+    /**
+     * Natives found with different contents in several jars or directories of the classpath.
+     */
+    private final List<NativeConflict> conflicts;
+
+    /**
+     * Startup profile, null if not enabled.
+     */
+    private final StartupProfile profile;
 
     /**
      * Create a new instance, root path to use is defaulted as user_home/app-root/data.
@@ -93,32 +135,26 @@ public final class NativeResourceLoader {
      */
     private NativeResourceLoader(String path, boolean decompress, OperatingSystem... systemToSupport) {
         super();
-        OperatingSystem nos = this.findSystem(systemToSupport);
+        OperatingSystem nos = findSystem(systemToSupport);
         this.libraryExtension = nos.getExtension();
         this.directory = nos.getName();
         this.libDirectory = Path.of(path);
+        Path nativeDirectory = this.libDirectory.resolve(this.directory).toAbsolutePath();
+        this.profile = Boolean.getBoolean(PROFILE_PROPERTY)
+                ? StartupProfile.read(this.libDirectory.resolve(this.directory + StartupProfile.EXTENSION), nativeDirectory)
+                : null;
+        List<String> priority = this.profile == null ? List.of() : this.profile.getLibraries();
         if (decompress) {
-            LOGGER.log(System.Logger.Level.DEBUG, "Unpacking {} folder from jar to {} folder.", this.directory, libDirectory);
-            unpackDirectoryToDirectory(Path.of(this.directory), libDirectory);
+            LOGGER.log(System.Logger.Level.DEBUG, "Unpacking {0} folder from jar to {1} folder.", this.directory, libDirectory);
+            this.conflicts = new NativeExtractor(nativeDirectory, this.metrics, priority).extractFromClasspath(this.directory);
+        } else {
+            this.conflicts = List.of();
         }
-        try {
-            this.registerLibInDir();
-        } catch (IOException e) {
-            LOGGER.log(System.Logger.Level.ERROR, "Cannot register libs", e);
-        }
-    }
-
-    private void unpackDirectoryToDirectory(Path path, Path destination) {
-        try {
-            var url = NativeResourceLoader.class.getResource("/" + path);
-            if (Files.notExists(destination)) {
-                try (var in = url.openStream()) {
-                    Files.copy(in, destination);
-                }
-            }
-        } catch (Exception e) {
-            throw new IllegalStateException(e);
+        if (!priority.isEmpty()) {
+            this.profile.prefetch(VIRTUAL_THREADS);
         }
+        this.availableLib = new NativeRegistry(nativeDirectory, this.libraryExtension, this.metrics);
+        this.dependencies = new DependencyGraph(this.availableLib::resolveNeeded, this.availableLib::getGeneration);
     }
 
     /**
@@ -152,6 +188,125 @@ public final class NativeResourceLoader {
         return new NativeResourceLoader(path, true, OperatingSystems.getAll());
     }
 
+    /**
+     * Retrieve the libraries in the class pass, decompress them in a versioned sub directory of the provided path
+     * and register them.
+     * The path can be shared by several processes: the extraction is protected by a file lock, so only one process
+     * extracts a version while the others wait and reuse it, and different versions are in different directories.
+     * @param path Directory shared between the processes, cannot be null.
+     * @param version Version of the natives, used as sub directory name, cannot be null.
+     * @param systemToSupport The list of system to support, cannot be null.
+     * @return The created loader, never null.
+     */
+    public static NativeResourceLoader inJarShared(String path, String version, OperatingSystem... systemToSupport) {
+        Objects.requireNonNull(version);
+        return new NativeResourceLoader(Path.of(path).resolve(version).toString(), true, systemToSupport);
+    }
+
+    /**
+     * Retrieve the libraries in the class pass, decompress them in a versioned sub directory of the provided path
+     * and register them, support all systems.
+     * The version is computed from the natives manifest if any, from the natives names and sizes otherwise.
+     * @param path Directory shared between the processes, cannot be null.
+     * @return The created loader, never null.
+     */
+    public static NativeResourceLoader inJarShared(String path) {
+        return inJarShared(path, OperatingSystems.getAll());
+    }
+
+    /**
+     * Retrieve the libraries in the class pass, decompress them in a versioned sub directory of the provided path
+     * and register them.
+     * The version is computed from the natives manifest if any, from the natives names and sizes otherwise.
+     * @param path Directory shared between the processes, cannot be null.
+     * @param systemToSupport The list of system to support, cannot be null.
+     * @return The created loader, never null.
+     */
+    public static NativeResourceLoader inJarShared(String path, OperatingSystem... systemToSupport) {
+        String version = NativeExtractor.contentVersion(findSystem(systemToSupport).getName());
+        return inJarShared(path, version, systemToSupport);
+    }
+
+    /**
+     * Retrieve the libraries in the class pass, decompress them in a RAM backed directory and register them, so
+     * no disk write is done, and nothing is left behind once the machine or container stops.
+     * The first usable tmpfs or ramfs directory, mounted without noexec and with enough free space, is used:
+     * /dev/shm, the user runtime directory, /run/shm or the temporary directory. If none is usable, the libraries
+     * are decompressed on disk as with {@link #inJar(OperatingSystem...)}.
+     * Natives are extracted in a versioned sub directory, shared by the processes of the same user.
+     * @param systemToSupport The list of system to support, cannot be null.
+     * @return The created loader, never null.
+     */
+    public static NativeResourceLoader inJarInMemory(OperatingSystem... systemToSupport) {
+        String name = findSystem(systemToSupport).getName();
+        Optional<Path> memory = MemoryDirectory.find(NativeExtractor.contentSize(name));
+        if (memory.isEmpty()) {
+            LOGGER.log(System.Logger.Level.INFO, "No RAM backed directory usable, natives extracted to disk.");
+            return inJar(systemToSupport);
+        }
+        return inJarShared(memory.get().toString(), NativeExtractor.contentVersion(name), systemToSupport);
+    }
+
+    /**
+     * Retrieve the libraries in the class pass, decompress them in a RAM backed directory and register them,
+     * support all systems.
+     * @return The created loader, never null.
+     * @see #inJarInMemory(OperatingSystem...)
+     */
+    public static NativeResourceLoader inJarInMemory() {
+        return inJarInMemory(OperatingSystems.getAll());
+    }
+
+    /**
+     * Retrieve the libraries in the class pass, decompress them and register them in a virtual thread, support
+     * all systems.
+     * @return The loader being created, never null.
+     */
+    public static CompletableFuture<NativeResourceLoader> inJarAsync() {
+        return inJarAsync(VIRTUAL_THREADS, OperatingSystems.getAll());
+    }
+
+    /**
+     * Retrieve the libraries in the class pass, decompress them and register them in the background.
+     * @param executor Executor running the extraction and registration, cannot be null.
+     * @param systemToSupport The list of system to support, cannot be null.
+     * @return The loader being created, never null.
+     */
+    public static CompletableFuture<NativeResourceLoader> inJarAsync(Executor executor, OperatingSystem... systemToSupport) {
+        return CompletableFuture.supplyAsync(() -> new NativeResourceLoader(true, systemToSupport).register(), executor);
+    }
+
+    /**
+     * Retrieve the libraries in the class pass, decompress them in the provided path and register them in a
+     * virtual thread, support all systems.
+     * @param path Directory where the libs will be copied, cannot be null.
+     * @return The loader being created, never null.
+     */
+    public static CompletableFuture<NativeResourceLoader> inJarAsync(String path) {
+        return inJarAsync(VIRTUAL_THREADS, path, OperatingSystems.getAll());
+    }
+
+    /**
+     * Retrieve the libraries in the class pass, decompress them in the provided path and register them in the
+     * background.
+     * @param executor Executor running the extraction and registration, cannot be null.
+     * @param path Directory where the libs will be copied, cannot be null.
+     * @param systemToSupport The list of system to support, cannot be null.
+     * @return The loader being created, never null.
+     */
+    public static CompletableFuture<NativeResourceLoader> inJarAsync(Executor executor, String path, OperatingSystem... systemToSupport) {
+        return CompletableFuture.supplyAsync(() -> new NativeResourceLoader(path, true, systemToSupport).register(), executor);
+    }
+
+    /**
+     * Read the libraries directory now instead of on first lookup.
+     * @return This loader.
+     */
+    NativeResourceLoader register() {
+        this.availableLib.getLibraries();
+        return this;
+    }
+
     public static NativeResourceLoader inPath(String path, OperatingSystem... systemToSupport) {
         return new NativeResourceLoader(path,false, systemToSupport);
     }
@@ -170,7 +325,7 @@ public final class NativeResourceLoader {
         return new NativeResourceLoader(path, false, systemToSupport);
     }
 
-    private OperatingSystem findSystem(OperatingSystem[] systemToSupport) {
+    private static OperatingSystem findSystem(OperatingSystem[] systemToSupport) {
         return Arrays
                 .stream(systemToSupport)
                 .filter(OperatingSystem::isCurrent)
@@ -180,55 +335,336 @@ public final class NativeResourceLoader {
 
     /**
      * Give the full path of a registered native library.
+     * The libraries directory is read on the first call, and every result, found or not, is memoized.
      *
      * @param lib Library to check.
      * @return The absolute path of the given library.
      */
     public String getLibPath(final String lib) {
-        Path f = Path.of(lib.endsWith(libraryExtension) ? lib : lib + libraryExtension);
-        if (Files.exists(f)) {
-            return f.toAbsolutePath().toString();
-        }
-        String nativePath = this.availableLib.get(f.getFileName().toString());
-        if (nativePath == null) {
-            throw new IllegalStateException(lib + " has not been found in path.");
-        }
-        return nativePath;
+        return this.availableLib.resolve(lib).orElseThrow(() -> new IllegalStateException(lib + " has not been found in path."));
+    }
+
+    /**
+     * Give the full path of the newest registered version of a native library, the versions being read from the
+     * file names, such as libfoo.so.1.2.3, with links resolved to their target.
+     *
+     * @param lib Library base name, with or without lib prefix, such as foo or libfoo.
+     * @param version Version prefix, such as 1 for the newest 1.x.y or 1.2 for the newest 1.2.x, null for the
+     *                newest version.
+     * @return The absolute path of the given library.
+     * @throws IllegalStateException If no matching version is registered.
+     * @throws IllegalArgumentException If the version is not a dotted number.
+     */
+    public String getLibPath(final String lib, final String version) {
+        return this.availableLib.resolve(lib, version)
+                .orElseThrow(() -> new IllegalStateException(lib + " " + version + " has not been found in path."));
+    }
+
+    /**
+     * Provide the natives found with different contents in several jars or directories of the classpath, when
+     * the natives have been extracted by this loader, the first one found has been used.
+     *
+     * @return The conflicts, never null.
+     */
+    public List<NativeConflict> getNativeConflicts() {
+        return this.conflicts;
+    }
+
+    /**
+     * Provide the libraries found in the libraries directory but not registered because they cannot be loaded by
+     * the running JVM, for example built for another architecture, or truncated.
+     *
+     * @return The rejected libraries, never null.
+     */
+    public List<RejectedLibrary> getRejectedLibraries() {
+        return this.availableLib.getRejected();
+    }
+
+    /**
+     * Register a listener to receive the measures of this loader.
+     * The extraction done while creating the loader is only published to the listeners declared as services.
+     *
+     * @param listener Listener to add, cannot be null.
+     */
+    public void addListener(final NativeLoaderListener listener) {
+        this.metrics.addListener(Objects.requireNonNull(listener));
+    }
+
+    /**
+     * Stop notifying a listener.
+     *
+     * @param listener Listener to remove.
+     */
+    public void removeListener(final NativeLoaderListener listener) {
+        this.metrics.removeListener(listener);
+    }
+
+    /**
+     * Forget the memoized path of a library, the next call to getLibPath for that name will look for it again.
+     *
+     * @param lib Library name to forget, cannot be null.
+     */
+    public void invalidate(final String lib) {
+        this.availableLib.invalidate(lib);
+    }
+
+    /**
+     * Forget all registered libraries and memoized paths, the libraries directory will be read again on the next
+     * lookup.
+     */
+    public void refresh() {
+        this.availableLib.refresh();
+    }
+
+    /**
+     * Keep the registered libraries up to date with the changes in the libraries directory, so libraries added
+     * after the loader creation can be found, only the changed files are looked up again.
+     * Changes are applied once no new change happened for 200 milliseconds.
+     *
+     * @return The watcher, to close to stop watching.
+     * @throws IllegalStateException If the directory cannot be watched.
+     */
+    public LibraryWatcher watch() {
+        return this.watch(Duration.ofMillis(200));
+    }
+
+    /**
+     * Keep the registered libraries up to date with the changes in the libraries directory, so libraries added
+     * after the loader creation can be found, only the changed files are looked up again.
+     * When the directory has a native manifest, the changes of the files it lists are ignored, the other files are
+     * registered as they are seen. A refresh, or a new loader, only registers the libraries listed in the manifest,
+     * it must be generated again to include the added libraries.
+     *
+     * @param debounce Time without new change to wait before applying the changes, cannot be null.
+     * @return The watcher, to close to stop watching.
+     * @throws IllegalStateException If the directory cannot be watched.
+     */
+    public LibraryWatcher watch(final Duration debounce) {
+        return new LibraryWatcher(this.libDirectory.resolve(this.directory).toAbsolutePath(), this.availableLib, Objects.requireNonNull(debounce));
     }
 
     /**
      * Load a native library, it will check if it is contained in a jar, if so,
      * the library will be extracted in a temporary place and loaded from there.
+     * The libraries are loaded after their registered dependencies, found in their ELF dynamic section, those
+     * dependencies are loaded too even if not provided.
      *
      * @param libs Native library name to load, cannot be null.
      */
     public void loadLibrary(final String... libs) {
-        String nativePath;
-        for (String lib : libs) {
-            nativePath = getLibPath(lib);
-            LOGGER.log(System.Logger.Level.DEBUG, "Loading native : {}", nativePath);
-            System.load(nativePath);
-            LOGGER.log(System.Logger.Level.DEBUG, "{} loaded.", nativePath);
+        try {
+            for (String nativePath : this.dependencies.order(this.getLibPaths(libs))) {
+                this.load(nativePath);
+            }
+        } finally {
+            this.saveProfile();
         }
     }
 
     /**
-     * Register the found libraries in a directory to be ready to be loaded.
+     * Load native libraries, as {@link #loadLibrary(String...)}, but libraries not depending on each other are
+     * loaded concurrently.
      *
-     * @param dir Directory holding the libraries.
-     */
-    private void registerLibInDir(final Path dir) throws IOException {
-        if (Files.exists(dir) && Files.isDirectory(dir)) {
-            try(Stream<Path> walk = Files.walk(dir)) {
-                walk
-                        .filter(p -> Files.isRegularFile(p) && p.toString().endsWith(this.libraryExtension))
-                        .forEach(p -> this.availableLib.put(p.getFileName().toString(), p.toAbsolutePath().toString()));
-            }
+     * @param libs Native library name to load, cannot be null.
+     */
+    public void loadLibraryConcurrently(final String... libs) {
+        try {
+            this.dependencies.runInOrder(this.getLibPaths(libs), this::load, VIRTUAL_THREADS);
+        } finally {
+            this.saveProfile();
+        }
+    }
+
+    /**
+     * Load native libraries in the background, in virtual threads, as {@link #loadLibraryConcurrently(String...)}.
+     *
+     * @param libs Native library name to load, cannot be null.
+     * @return The task loading the libraries, completed exceptionally if a library cannot be found or loaded.
+     */
+    public CompletableFuture<Void> loadLibraryAsync(final String... libs) {
+        return this.loadLibraryAsync(VIRTUAL_THREADS, libs);
+    }
+
+    /**
+     * Load native libraries in the background, as {@link #loadLibraryConcurrently(String...)}.
+     *
+     * @param executor Executor running the loading, cannot be null.
+     * @param libs Native library name to load, cannot be null.
+     * @return The task loading the libraries, completed exceptionally if a library cannot be found or loaded.
+     */
+    public CompletableFuture<Void> loadLibraryAsync(final Executor executor, final String... libs) {
+        Objects.requireNonNull(executor);
+        Objects.requireNonNull(libs);
+        return CompletableFuture
+                .supplyAsync(() -> this.getLibPaths(libs), executor)
+                .thenCompose(paths -> this.dependencies.runInOrderAsync(paths, this::load, executor))
+                .whenComplete((v, e) -> this.saveProfile());
+    }
+
+    /**
+     * Write the startup profile in background once a load pass is done, if the profile is enabled.
+     */
+    private void saveProfile() {
+        if (this.profile != null) {
+            this.profile.save(VIRTUAL_THREADS);
         }
     }
 
-    private void registerLibInDir() throws IOException {
-        registerLibInDir(libDirectory.resolve(this.directory).toAbsolutePath());
+    /**
+     * Open a native library with the foreign function and memory API, in its own arena.
+     * Contrary to {@link #loadLibrary(String...)}, the library is not bound to the class loader, it is unloaded
+     * when the returned handle is closed. Its registered dependencies are opened first, in the same arena.
+     *
+     * @param lib Native library name to open, cannot be null.
+     * @return The handle on the opened library, to close to unload it.
+     */
+    public NativeLibrary openLibrary(final String lib) {
+        Arena arena = Arena.ofShared();
+        try {
+            return this.openLibrary(lib, arena, true);
+        } catch (RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open a native library with the foreign function and memory API, in an arena provided by the caller.
+     * The library, and its registered dependencies opened first, are unloaded when that arena is closed.
+     *
+     * @param lib Native library name to open, cannot be null.
+     * @param arena Arena controlling the library lifetime, cannot be null.
+     * @return The handle on the opened library.
+     */
+    public NativeLibrary openLibrary(final String lib, final Arena arena) {
+        Objects.requireNonNull(arena);
+        return this.openLibrary(lib, arena, false);
+    }
+
+    /**
+     * Open a native library with dlopen, using the given binding modes, the library is closed with dlclose when
+     * the returned handle is closed.
+     * The library is found as with {@link #getLibPath(String)}, and its registered dependencies are opened first,
+     * with the same modes. Only available on Linux.
+     *
+     * @param lib Native library name to open, cannot be null.
+     * @param modes Binding modes, exactly one of LAZY and NOW is required.
+     * @return The handle on the opened library.
+     * @throws IllegalStateException If the library cannot be opened, with the dlerror message.
+     * @throws IllegalArgumentException If the modes are invalid.
+     */
+    public NativeLibrary openLibrary(final String lib, final BindingMode... modes) {
+        Arena arena = Arena.ofShared();
+        try {
+            return this.openLibrary(lib, arena, true, BindingMode.flags(modes));
+        } catch (RuntimeException e) {
+            arena.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open a native library with dlopen, using the given binding modes, in an arena provided by the caller.
+     * The library, and its registered dependencies opened first, are closed with dlclose when that arena is closed.
+     * Only available on Linux.
+     *
+     * @param lib Native library name to open, cannot be null.
+     * @param arena Arena controlling the library lifetime, cannot be null.
+     * @param modes Binding modes, exactly one of LAZY and NOW is required.
+     * @return The handle on the opened library.
+     * @throws IllegalStateException If the library cannot be opened, with the dlerror message.
+     * @throws IllegalArgumentException If the modes are invalid.
+     */
+    public NativeLibrary openLibrary(final String lib, final Arena arena, final BindingMode... modes) {
+        Objects.requireNonNull(arena);
+        return this.openLibrary(lib, arena, false, BindingMode.flags(modes));
+    }
+
+    private NativeLibrary openLibrary(final String lib, final Arena arena, final boolean ownArena) {
+        return this.openLibrary(lib, arena, ownArena, -1);
+    }
+
+    /**
+     * Open a native library and its registered dependencies.
+     *
+     * @param lib Native library name to open.
+     * @param arena Arena controlling the library lifetime.
+     * @param ownArena True if the arena must be closed with the library.
+     * @param flags dlopen flags, negative to use the default library lookup.
+     * @return The handle on the opened library.
+     */
+    private NativeLibrary openLibrary(final String lib, final Arena arena, final boolean ownArena, final int flags) {
+        String nativePath = this.getLibPath(lib);
+        SymbolLookup lookup = null;
+        for (String path : this.dependencies.order(List.of(nativePath))) {
+            lookup = this.open(path, arena, flags);
+        }
+        return new NativeLibrary(Path.of(nativePath).getFileName().toString(), nativePath, arena, ownArena, lookup);
+    }
+
+    /**
+     * Open a library in an arena.
+     *
+     * @param nativePath Absolute path of the library.
+     * @param arena Arena controlling the library lifetime.
+     * @param flags dlopen flags, negative to use the default library lookup.
+     * @return The library symbol lookup.
+     */
+    private SymbolLookup open(final String nativePath, final Arena arena, final int flags) {
+        LOGGER.log(System.Logger.Level.DEBUG, "Opening native : {0}", nativePath);
+        LoadEvent event = new LoadEvent();
+        event.begin();
+        long time = System.nanoTime();
+        try {
+            SymbolLookup lookup = flags < 0
+                    ? SymbolLookup.libraryLookup(Path.of(nativePath), arena)
+                    : DynamicLinker.open(Path.of(nativePath), flags, arena);
+            this.metrics.loaded(event, nativePath, Duration.ofNanos(System.nanoTime() - time), null);
+            return lookup;
+        } catch (RuntimeException e) {
+            this.metrics.loaded(event, nativePath, Duration.ofNanos(System.nanoTime() - time), e);
+            throw e;
+        }
+    }
+
+    private List<String> getLibPaths(final String... libs) {
+        return Arrays.stream(libs).map(this::getLibPath).toList();
+    }
+
+    /**
+     * Load a library, unless this loader already loaded it.
+     * A library is loaded only once, a thread asking for a library being loaded by another one waits for that
+     * load to complete. A failed load is forgotten, so it can be tried again.
+     *
+     * @param nativePath Absolute path of the library.
+     */
+    private void load(final String nativePath) {
+        CompletableFuture<LoadedLibrary> task = new CompletableFuture<>();
+        CompletableFuture<LoadedLibrary> running = this.loaded.putIfAbsent(nativePath, task);
+        if (running != null) {
+            Futures.join(running);
+            return;
+        }
+        LOGGER.log(System.Logger.Level.DEBUG, "Loading native : {0}", nativePath);
+        LoadEvent event = new LoadEvent();
+        event.begin();
+        Instant start = Instant.now();
+        long time = System.nanoTime();
+        try {
+            System.load(nativePath);
+            Duration duration = Duration.ofNanos(System.nanoTime() - time);
+            this.metrics.loaded(event, nativePath, duration, null);
+            if (this.profile != null) {
+                this.profile.record(nativePath);
+            }
+            task.complete(new LoadedLibrary(Path.of(nativePath).getFileName().toString(), nativePath, start, duration));
+            LOGGER.log(System.Logger.Level.DEBUG, "{0} loaded in {1} ms.", nativePath, duration.toMillis());
+        } catch (RuntimeException | Error e) {
+            this.metrics.loaded(event, nativePath, Duration.ofNanos(System.nanoTime() - time), e);
+            this.loaded.remove(nativePath, task);
+            task.completeExceptionally(e);
+            throw e;
+        }
     }
 
     /**
@@ -246,14 +682,27 @@ public final class NativeResourceLoader {
         }
     }
 
+    /**
+     * Provide the libraries loaded by this loader.
+     *
+     * @return The paths of the loaded libraries, in loading order, never null.
+     */
     public List<String> getLoadedLibraries() {
-        try {
-            Field lib = ClassLoader.class.getDeclaredField("loadedLibraryNames");
-            lib.setAccessible(true);
-            return new ArrayList<String>(Vector.class.cast(lib.get(ClassLoader.getSystemClassLoader())));
-        } catch (NoSuchFieldException | IllegalAccessException e) {
-            throw new IllegalArgumentException(e);
-        }
+        return this.getLoadedLibraryDetails().stream().map(LoadedLibrary::path).toList();
+    }
+
+    /**
+     * Provide the libraries loaded by this loader, with the loading time.
+     *
+     * @return The loaded libraries, in loading order, never null.
+     */
+    public List<LoadedLibrary> getLoadedLibraryDetails() {
+        return this.loaded.values()
+                .stream()
+                .filter(f -> f.isDone() && !f.isCompletedExceptionally())
+                .map(CompletableFuture::join)
+                .sorted(Comparator.comparing(LoadedLibrary::loadedAt))
+                .toList();
     }
 
 }
@@ -0,0 +1,270 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.IOException;
+import java.lang.module.ModuleReader;
+import java.lang.module.ModuleReference;
+import java.lang.module.ResolvedModule;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Native directories with a given name found in the whole classpath and module layers, every jar or directory
+ * shipping that directory is a source, not only the first one.
+ * Jar sources are opened as private zip file systems, not shared with other callers reading the same jar, so
+ * closing this object never closes a file system still used by a concurrent extraction.
+ *
+ * @author Grégory Van den Borre
+ */
+final class NativeSources implements AutoCloseable {
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(NativeSources.class.getName());
+
+    /**
+     * Root of each found native directory, in discovery order.
+     */
+    private final List<Path> roots;
+
+    /**
+     * File systems opened to read the sources.
+     */
+    private final List<FileSystem> opened;
+
+    private NativeSources(final List<Path> roots, final List<FileSystem> opened) {
+        super();
+        this.roots = Collections.unmodifiableList(roots);
+        this.opened = opened;
+    }
+
+    /**
+     * Find and open all the native directories with a name.
+     *
+     * @param directory Name of the directory in the classpath root.
+     * @return The opened sources, at least one, the locations that cannot be read are ignored.
+     * @throws IllegalStateException If no directory is found.
+     */
+    static NativeSources open(final String directory) {
+        List<Path> roots = new ArrayList<>();
+        List<FileSystem> opened = new ArrayList<>();
+        NativeSources sources = new NativeSources(roots, opened);
+        for (URI uri : locate(directory)) {
+            try {
+                if ("jar".equals(uri.getScheme())) {
+                    Path root = jarRoot(uri, opened);
+                    if (Files.isDirectory(root)) {
+                        roots.add(root);
+                    }
+                } else if ("file".equals(uri.getScheme()) && Files.isDirectory(Path.of(uri))) {
+                    roots.add(Path.of(uri));
+                }
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Cannot read native directory " + uri, e);
+            }
+        }
+        if (roots.isEmpty()) {
+            sources.close();
+            throw new IllegalStateException("No native directory /" + directory + " found in classpath.");
+        }
+        LOGGER.log(System.Logger.Level.DEBUG, "Native directories found for {0}: {1}", directory, roots.size());
+        return sources;
+    }
+
+    /**
+     * Open the native directory of a jar.
+     * A jar file is opened in a private file system, only used and closed by this object. Other jar locations,
+     * such as nested jars, are read from the file system registered for them, which is never closed here.
+     *
+     * @param uri Normalized jar location.
+     * @param opened Filled with the file system opened for the location, if any.
+     * @return The native directory in the jar.
+     * @throws IOException If the jar cannot be opened.
+     */
+    private static Path jarRoot(final URI uri, final List<FileSystem> opened) throws IOException {
+        String value = uri.toString();
+        int separator = value.indexOf("!/");
+        if (separator > 0 && value.startsWith("jar:file:")) {
+            FileSystem fs = FileSystems.newFileSystem(Path.of(URI.create(value.substring(4, separator))));
+            opened.add(fs);
+            return fs.getPath("/" + value.substring(separator + 2));
+        }
+        FileSystem fs;
+        try {
+            fs = FileSystems.getFileSystem(uri);
+        } catch (FileSystemNotFoundException e) {
+            try {
+                fs = FileSystems.newFileSystem(uri, Map.of());
+            } catch (FileSystemAlreadyExistsException ex) {
+                fs = FileSystems.getFileSystem(uri);
+            }
+        }
+        return fs.provider().getPath(uri);
+    }
+
+    /**
+     * Find the candidate locations of a native directory: the resources with that name in the class loaders, and
+     * that directory in every module of the loader layers that contains it, as resources of a named module may be
+     * encapsulated.
+     *
+     * @param directory Name of the directory in the classpath root.
+     * @return The candidate locations, without duplicates, the class loader ones may not be directories.
+     */
+    static List<URI> locate(final String directory) {
+        Set<URI> result = new LinkedHashSet<>();
+        Set<ClassLoader> loaders = new LinkedHashSet<>();
+        loaders.add(NativeSources.class.getClassLoader());
+        loaders.add(Thread.currentThread().getContextClassLoader());
+        for (ClassLoader loader : loaders) {
+            if (loader != null) {
+                try {
+                    Enumeration<URL> urls = loader.getResources(directory);
+                    while (urls.hasMoreElements()) {
+                        result.add(normalize(urls.nextElement().toURI()));
+                    }
+                } catch (IOException | URISyntaxException e) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Cannot look for " + directory + " in class loader", e);
+                }
+            }
+        }
+        for (ResolvedModule module : modules()) {
+            ModuleReference reference = module.reference();
+            if (reference.location().filter(l -> "file".equals(l.getScheme())).isPresent()) {
+                moduleLocation(reference, directory).map(NativeSources::normalize).ifPresent(result::add);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Find a directory in a module through its reader, so only the modules that contain it are opened as sources
+     * later. A jar may have no entry for the directory itself, its content is then listed to find it.
+     *
+     * @param reference Module to look into.
+     * @param directory Name of the directory in the module root.
+     * @return The directory location, empty if the module does not contain it or cannot be read.
+     */
+    private static Optional<URI> moduleLocation(final ModuleReference reference, final String directory) {
+        try (ModuleReader reader = reference.open()) {
+            Optional<URI> found = reader.find(directory);
+            if (found.isPresent()) {
+                return found;
+            }
+            try (Stream<String> names = reader.list()) {
+                if (names.anyMatch(n -> n.startsWith(directory + "/"))) {
+                    return reference.location().map(l -> URI.create("jar:" + l + "!/" + directory));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Cannot look for " + directory + " in module " + reference.descriptor().name(), e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Normalize a location, so the same directory found from a class loader and from a module layer is the same.
+     *
+     * @param uri Location to normalize.
+     * @return The normalized location.
+     */
+    static URI normalize(final URI uri) {
+        if ("file".equals(uri.getScheme())) {
+            return Path.of(uri).toAbsolutePath().normalize().toUri();
+        }
+        if ("jar".equals(uri.getScheme())) {
+            String value = uri.toString();
+            int separator = value.indexOf("!/");
+            if (separator > 0 && value.startsWith("jar:file:")) {
+                Path jar = Path.of(URI.create(value.substring(4, separator))).toAbsolutePath().normalize();
+                String entry = value.substring(separator + 2);
+                while (entry.endsWith("/")) {
+                    entry = entry.substring(0, entry.length() - 1);
+                }
+                return URI.create("jar:" + jar.toUri() + "!/" + entry);
+            }
+        }
+        return uri;
+    }
+
+    /**
+     * List the modules of the layer of this library and of its parents.
+     *
+     * @return The resolved modules.
+     */
+    private static List<ResolvedModule> modules() {
+        ModuleLayer layer = NativeSources.class.getModule().getLayer();
+        Deque<ModuleLayer> layers = new ArrayDeque<>();
+        layers.add(layer == null ? ModuleLayer.boot() : layer);
+        Set<ModuleLayer> visited = new HashSet<>();
+        List<ResolvedModule> result = new ArrayList<>();
+        while (!layers.isEmpty()) {
+            ModuleLayer current = layers.poll();
+            if (visited.add(current)) {
+                result.addAll(current.configuration().modules());
+                layers.addAll(current.parents());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The root of each native directory found, in discovery order.
+     */
+    List<Path> getRoots() {
+        return this.roots;
+    }
+
+    @Override
+    public void close() {
+        for (FileSystem fs : this.opened) {
+            try {
+                fs.close();
+            } catch (IOException | FileSystemNotFoundException e) {
+                LOGGER.log(System.Logger.Level.DEBUG, "Cannot close native source", e);
+            }
+        }
+    }
+}
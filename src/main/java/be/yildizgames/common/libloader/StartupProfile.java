@@ -0,0 +1,204 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * Libraries loaded during a run, in loading order, recorded to be prefetched on the next start.
+ * The profile file holds one library per line, relative to the libraries directory when it is inside it.
+ * Loaded libraries are only collected in memory, the file is written in background once a load pass is done,
+ * and only when the loading order differs from the recorded one, so a stable application does not write anything
+ * once its profile has been recorded.
+ *
+ * @author Grégory Van den Borre
+ */
+final class StartupProfile {
+
+    /**
+     * Extension of the profile file, named after the libraries directory.
+     */
+    static final String EXTENSION = ".libloader-profile";
+
+    /**
+     * First line of a profile file.
+     */
+    private static final String HEADER = "# yildiz startup profile v1";
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(StartupProfile.class.getName());
+
+    /**
+     * Profile file.
+     */
+    private final Path file;
+
+    /**
+     * Libraries directory.
+     */
+    private final Path directory;
+
+    /**
+     * Libraries recorded on the previous run.
+     */
+    private final List<String> previous;
+
+    /**
+     * Libraries loaded during this run, in loading order.
+     */
+    private final Queue<String> recorded = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Libraries already recorded during this run.
+     */
+    private final Set<String> seen = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Libraries in the profile file, the previous ones until this run writes it.
+     */
+    private List<String> written;
+
+    private StartupProfile(final Path file, final Path directory, final List<String> previous) {
+        super();
+        this.file = file;
+        this.directory = directory;
+        this.previous = List.copyOf(previous);
+        this.written = this.previous;
+    }
+
+    /**
+     * Read the profile of a libraries directory.
+     *
+     * @param file Profile file.
+     * @param directory Libraries directory.
+     * @return The profile, with no library if the file does not exist or cannot be read.
+     */
+    static StartupProfile read(final Path file, final Path directory) {
+        List<String> libraries = new ArrayList<>();
+        if (Files.isRegularFile(file)) {
+            try {
+                List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+                if (!lines.isEmpty() && HEADER.equals(lines.get(0))) {
+                    lines.stream().skip(1).filter(l -> !l.isBlank()).forEach(libraries::add);
+                }
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Cannot read startup profile {0}", file);
+            }
+        }
+        return new StartupProfile(file, directory, libraries);
+    }
+
+    /**
+     * Provide the libraries recorded on the previous run.
+     *
+     * @return The library names, relative to the libraries directory when inside it, in loading order.
+     */
+    List<String> getLibraries() {
+        return this.previous;
+    }
+
+    /**
+     * Record a loaded library, only in memory, nothing is written until {@link #save(Executor)} is called.
+     *
+     * @param path Absolute path of the loaded library.
+     */
+    void record(final String path) {
+        Path library = Path.of(path);
+        String name = library.startsWith(this.directory) ? NativeManifest.relativeName(this.directory, library) : path;
+        if (this.seen.add(name)) {
+            this.recorded.add(name);
+        }
+    }
+
+    /**
+     * Write the libraries recorded so far, if their loading order is not the one already in the profile file.
+     *
+     * @param executor Executor writing the file.
+     * @return A future completed once the file has been written, or once it was found up to date.
+     */
+    CompletableFuture<Void> save(final Executor executor) {
+        return CompletableFuture.runAsync(this::write, executor);
+    }
+
+    private synchronized void write() {
+        List<String> libraries = List.copyOf(this.recorded);
+        if (libraries.isEmpty() || (this.written.size() >= libraries.size() && this.written.subList(0, libraries.size()).equals(libraries))) {
+            return;
+        }
+        try {
+            Files.createDirectories(this.file.getParent());
+            Path temp = Files.createTempFile(this.file.getParent(), this.file.getFileName().toString(), ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (String library : libraries) {
+                    writer.write(library);
+                    writer.newLine();
+                }
+            }
+            ExtractionCache.moveAtomically(temp, this.file);
+            this.written = libraries;
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Cannot write startup profile " + this.file, e);
+        }
+    }
+
+    /**
+     * Warm the page cache with the recorded libraries, each file is mapped and fully read, in loading order.
+     *
+     * @param executor Executor running the prefetch.
+     * @return A future completed once every file has been read.
+     */
+    CompletableFuture<Void> prefetch(final Executor executor) {
+        return CompletableFuture.runAsync(() -> this.previous.stream().map(this.directory::resolve).forEach(StartupProfile::touch), executor);
+    }
+
+    private static void touch(final Path library) {
+        try (FileChannel channel = FileChannel.open(library, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Integer.MAX_VALUE, size - position)).load();
+            }
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Cannot prefetch {0}", library);
+        }
+    }
+}
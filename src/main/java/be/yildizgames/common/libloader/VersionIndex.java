@@ -0,0 +1,162 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Index of the registered libraries by base name and version, built from their file names, such as
+ * libfoo.so.1.2.3, so a library can be found without knowing its exact file name.
+ * A library with a SONAME is indexed under the base name of its SONAME, so a renamed file is still found by the
+ * name it is linked against. Names pointing to the same file, like the libfoo.so and libfoo.so.1 links to
+ * libfoo.so.1.2.3, are grouped as one library with the most precise version.
+ *
+ * @author Grégory Van den Borre
+ */
+final class VersionIndex {
+
+    /**
+     * Internal logger.
+     */
+    private static final System.Logger LOGGER = System.getLogger(VersionIndex.class.getName());
+
+    /**
+     * Versions of each base name, the newest first.
+     */
+    private final Map<String, List<Entry>> versions;
+
+    private VersionIndex(final Map<String, List<Entry>> versions) {
+        super();
+        this.versions = versions;
+    }
+
+    /**
+     * Build the index of registered libraries.
+     *
+     * @param libraries Library paths by file name, links being already resolved to their target.
+     * @param extension Library file extension.
+     * @param sonames Provide the SONAME of a library path, empty if it has none.
+     * @return The built index.
+     */
+    static VersionIndex build(final Map<String, String> libraries, final String extension, final Function<String, Optional<String>> sonames) {
+        Pattern pattern = pattern(extension);
+        Map<String, String> bases = new HashMap<>();
+        Map<String, Map<String, Entry>> byPath = new HashMap<>();
+        for (Map.Entry<String, String> library : libraries.entrySet()) {
+            Matcher matcher = pattern.matcher(library.getKey());
+            if (matcher.matches()) {
+                long[] version;
+                try {
+                    version = parse(matcher.group(2));
+                } catch (IllegalArgumentException e) {
+                    LOGGER.log(System.Logger.Level.WARNING, "{0} not indexed: {1}", library.getKey(), e.getMessage());
+                    continue;
+                }
+                String base = bases.computeIfAbsent(library.getValue(), p -> sonames.apply(p)
+                        .map(pattern::matcher)
+                        .filter(Matcher::matches)
+                        .map(m -> m.group(1))
+                        .orElse(matcher.group(1)));
+                Entry entry = new Entry(base, version, library.getValue());
+                byPath.computeIfAbsent(entry.base(), b -> new HashMap<>())
+                        .merge(entry.path(), entry, (a, b) -> a.version().length >= b.version().length ? a : b);
+            }
+        }
+        Map<String, List<Entry>> result = new HashMap<>();
+        byPath.forEach((base, entries) -> {
+            List<Entry> sorted = new ArrayList<>(entries.values());
+            sorted.sort(Comparator.comparing(Entry::version, Arrays::compare).reversed());
+            result.put(base, List.copyOf(sorted));
+        });
+        return new VersionIndex(result);
+    }
+
+    /**
+     * Find the newest version of a library matching a version prefix.
+     *
+     * @param name Library base name, with or without lib prefix, such as foo or libfoo.
+     * @param version Version prefix, such as 1 or 1.2, null for any version.
+     * @return The library path, empty if no version matches.
+     */
+    Optional<String> find(final String name, final String version) {
+        List<Entry> entries = this.versions.getOrDefault(name, this.versions.get("lib" + name));
+        if (entries == null) {
+            return Optional.empty();
+        }
+        long[] prefix = version == null || version.isBlank() ? new long[0] : parse("." + version);
+        return entries.stream()
+                .filter(e -> e.version().length >= prefix.length && Arrays.equals(e.version(), 0, prefix.length, prefix, 0, prefix.length))
+                .map(Entry::path)
+                .findFirst();
+    }
+
+    /**
+     * Build the pattern matching the library file names, with or without version, such as libfoo.so or
+     * libfoo.so.1.2.3, capturing the base name and the version suffix.
+     *
+     * @param extension Library file extension.
+     * @return The library file name pattern.
+     */
+    static Pattern pattern(final String extension) {
+        return Pattern.compile("(.+)" + Pattern.quote(extension) + "((?:\\.\\d+)*)");
+    }
+
+    /**
+     * Parse a version suffix.
+     *
+     * @param suffix Suffix such as .1.2.3, can be empty.
+     * @return The version numbers.
+     * @throws IllegalArgumentException If the suffix is not a dotted version, or a number is too large.
+     */
+    private static long[] parse(final String suffix) {
+        if (suffix.isEmpty()) {
+            return new long[0];
+        }
+        try {
+            return Arrays.stream(suffix.substring(1).split("\\.")).mapToLong(Long::parseLong).toArray();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid version: " + suffix.substring(1), e);
+        }
+    }
+
+    /**
+     * A library version.
+     *
+     * @param base Base name, such as libfoo.
+     * @param version Version numbers.
+     * @param path Library path.
+     */
+    private record Entry(String base, long[] version, String path) {
+    }
+}
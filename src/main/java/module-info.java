@@ -27,4 +27,8 @@ open module be.yildizgames.common.libloader {
     exports be.yildizgames.common.libloader;
 
     requires be.yildizgames.common.os;
+    requires jdk.jfr;
+
+    uses be.yildizgames.common.libloader.NativeLoaderListener;
+    uses be.yildizgames.common.libloader.NativeResourceLoaderProvider;
 }
\ No newline at end of file
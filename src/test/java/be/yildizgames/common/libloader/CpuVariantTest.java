@@ -0,0 +1,74 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Grégory Van den Borre
+ */
+class CpuVariantTest {
+
+    private static final Set<String> AVX2_CPU = CpuFeatures.parse(List.of(
+            "processor\t: 0",
+            "flags\t\t: fpu sse2 ssse3 sse4_1 sse4_2 popcnt avx avx2 bmi1 bmi2 fma"));
+
+    @Nested
+    class Available {
+
+        @Test
+        void detected() {
+            assertEquals(List.of(CpuVariant.AVX2, CpuVariant.SSE4), CpuVariant.available(null, AVX2_CPU));
+        }
+
+        @Test
+        void noFlags() {
+            assertEquals(List.of(), CpuVariant.available(null, CpuFeatures.parse(List.of("processor\t: 0"))));
+        }
+
+        @Test
+        void overridden() {
+            assertEquals(List.of(CpuVariant.SSE4), CpuVariant.available("sse4", AVX2_CPU));
+            assertEquals(List.of(CpuVariant.AVX512, CpuVariant.AVX2, CpuVariant.SSE4), CpuVariant.available("AVX512", Set.of()));
+        }
+
+        @Test
+        void disabled() {
+            assertEquals(List.of(), CpuVariant.available("none", AVX2_CPU));
+        }
+
+        @Test
+        void unknownOverride() {
+            assertThrows(IllegalStateException.class, () -> CpuVariant.available("mmx", AVX2_CPU));
+        }
+    }
+}
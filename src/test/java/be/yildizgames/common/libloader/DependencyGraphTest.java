@@ -0,0 +1,86 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+class DependencyGraphTest {
+
+    /**
+     * Directory holding the files created by a test, deleted once it completes.
+     */
+    @TempDir
+    Path temp;
+
+    @Nested
+    class Order {
+
+        @Test
+        void withoutDependencies() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            String one = Files.createFile(folder.resolve("lib_one.so")).toString();
+            String two = Files.createFile(folder.resolve("lib_two.so")).toString();
+            DependencyGraph graph = new DependencyGraph(n -> null);
+            assertEquals(List.of(two, one), graph.order(List.of(two, one)));
+        }
+
+        @Test
+        void dependencyLoadedFirst() {
+            Path libJava = Path.of(System.getProperty("java.home"), "lib", "libjava.so");
+            assumeTrue(Files.exists(libJava));
+            DependencyGraph graph = new DependencyGraph(n -> "libjvm.so".equals(n) ? "jvm" : null);
+            assertEquals(List.of("jvm", libJava.toString()), graph.order(List.of(libJava.toString())));
+        }
+
+        @Test
+        void readAgainWhenRegistryChanged() {
+            Path libJava = Path.of(System.getProperty("java.home"), "lib", "libjava.so");
+            assumeTrue(Files.exists(libJava));
+            AtomicReference<String> registered = new AtomicReference<>("jvm");
+            AtomicLong generation = new AtomicLong();
+            DependencyGraph graph = new DependencyGraph(n -> "libjvm.so".equals(n) ? registered.get() : null, generation::get);
+            assertEquals(List.of("jvm", libJava.toString()), graph.order(List.of(libJava.toString())));
+            registered.set("jvm2");
+            assertEquals(List.of("jvm", libJava.toString()), graph.order(List.of(libJava.toString())));
+            generation.incrementAndGet();
+            assertEquals(List.of("jvm2", libJava.toString()), graph.order(List.of(libJava.toString())));
+        }
+    }
+}
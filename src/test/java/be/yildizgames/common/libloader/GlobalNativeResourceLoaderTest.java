@@ -24,15 +24,21 @@
  */
 package be.yildizgames.common.libloader;
 
+import be.yildizgames.common.os.factory.OperatingSystems;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * @author Grégory Van den Borre
  */
-@Disabled
 class GlobalNativeResourceLoaderTest {
 
     @Nested
@@ -44,6 +50,7 @@ class GlobalNativeResourceLoaderTest {
         }
     }
 
+    @Disabled
     @Nested
     class GetLoader {
 
@@ -56,6 +63,7 @@ class GlobalNativeResourceLoaderTest {
     @Nested
     class SetNativeResourceLoader {
 
+        @Disabled
         @Test
         void happyFlow() {
             NativeResourceLoader loader = NativeResourceLoader.inJar();
@@ -67,5 +75,118 @@ class GlobalNativeResourceLoaderTest {
         void withNull() {
             Assertions.assertThrows(NullPointerException.class, () -> GlobalNativeResourceLoader.getInstance().setNativeResourceLoader(null));
         }
+
+        @Test
+        void notCreatingLoader() throws Exception {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader loader = NativeResourceLoader.inPath(folder.toString(), OperatingSystems.getAll());
+            AtomicInteger created = new AtomicInteger();
+            GlobalNativeResourceLoader global = new GlobalNativeResourceLoader(false, () -> {
+                created.incrementAndGet();
+                return loader;
+            });
+            global.setNativeResourceLoader(loader);
+            Assertions.assertSame(loader, global.getLoader());
+            Assertions.assertEquals(0, created.get());
+            Files.delete(folder);
+        }
+    }
+
+    @Nested
+    class Preload {
+
+        @Test
+        void happyFlow() throws Exception {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader loader = NativeResourceLoader.inPath(folder.toString(), OperatingSystems.getAll());
+            AtomicInteger created = new AtomicInteger();
+            GlobalNativeResourceLoader global = new GlobalNativeResourceLoader(true, () -> {
+                created.incrementAndGet();
+                return loader;
+            });
+            Assertions.assertSame(loader, global.getLoader());
+            Assertions.assertSame(loader, global.getLoader());
+            Assertions.assertEquals(1, created.get());
+            Files.delete(folder);
+        }
+
+        @Test
+        void failureCreatedAgain() throws Exception {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader loader = NativeResourceLoader.inPath(folder.toString(), OperatingSystems.getAll());
+            AtomicInteger created = new AtomicInteger();
+            GlobalNativeResourceLoader global = new GlobalNativeResourceLoader(true, () -> {
+                if (created.incrementAndGet() == 1) {
+                    throw new IllegalStateException("Preload failure");
+                }
+                return loader;
+            });
+            Assertions.assertSame(loader, global.getLoader());
+            Assertions.assertEquals(2, created.get());
+            Files.delete(folder);
+        }
+
+        @Test
+        void discardedWhenLoaderSet() throws Exception {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader loader = NativeResourceLoader.inPath(folder.toString(), OperatingSystems.getAll());
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            GlobalNativeResourceLoader global = new GlobalNativeResourceLoader(true, () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("Preload not discarded");
+            });
+            started.await();
+            global.setNativeResourceLoader(loader);
+            release.countDown();
+            Assertions.assertSame(loader, global.getLoader());
+            Files.delete(folder);
+        }
+    }
+
+    @Nested
+    class FromProperties {
+
+        @Test
+        void pathMode() throws Exception {
+            Path folder = Files.createTempDirectory("test");
+            Map<String, String> properties = Map.of(
+                    GlobalNativeResourceLoader.MODE_PROPERTY, "PATH",
+                    GlobalNativeResourceLoader.PATH_PROPERTY, folder.toString());
+            NativeResourceLoader loader = GlobalNativeResourceLoader.fromProperties(properties::get);
+            Assertions.assertEquals(folder, loader.libDirectory);
+            Files.delete(folder);
+        }
+
+        @Test
+        void pathModeWithoutPath() {
+            Map<String, String> properties = Map.of(GlobalNativeResourceLoader.MODE_PROPERTY, "path");
+            Assertions.assertThrows(IllegalStateException.class, () -> GlobalNativeResourceLoader.fromProperties(properties::get));
+        }
+
+        @Test
+        void sharedModeWithoutPath() {
+            Map<String, String> properties = Map.of(GlobalNativeResourceLoader.MODE_PROPERTY, "shared");
+            Assertions.assertThrows(IllegalStateException.class, () -> GlobalNativeResourceLoader.fromProperties(properties::get));
+        }
+
+        @Test
+        void unknownMode() {
+            Map<String, String> properties = Map.of(GlobalNativeResourceLoader.MODE_PROPERTY, "unknown");
+            Assertions.assertThrows(IllegalStateException.class, () -> GlobalNativeResourceLoader.fromProperties(properties::get));
+        }
+
+        @Test
+        void unknownSystem() {
+            Map<String, String> properties = Map.of(
+                    GlobalNativeResourceLoader.MODE_PROPERTY, "external",
+                    GlobalNativeResourceLoader.SYSTEMS_PROPERTY, "unknown");
+            Assertions.assertThrows(IllegalStateException.class, () -> GlobalNativeResourceLoader.fromProperties(properties::get));
+        }
     }
 }
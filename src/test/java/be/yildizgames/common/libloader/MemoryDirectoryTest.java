@@ -0,0 +1,104 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+class MemoryDirectoryTest {
+
+    /**
+     * Directory holding the files created by a test, deleted once it completes.
+     */
+    @TempDir
+    Path temp;
+
+    @Nested
+    class ParseMounts {
+
+        @Test
+        void happyFlow() {
+            List<MemoryDirectory.Mount> mounts = MemoryDirectory.parseMounts(List.of(
+                    "/dev/sda1 / ext4 rw,relatime 0 0",
+                    "shm /dev/shm tmpfs rw,nosuid,nodev,noexec,relatime,size=65536k 0 0",
+                    "tmpfs /mnt/with\\040space tmpfs rw 0 0"));
+            assertEquals(3, mounts.size());
+            assertEquals(Path.of("/dev/shm"), mounts.get(1).point());
+            assertEquals("tmpfs", mounts.get(1).type());
+            assertTrue(mounts.get(1).options().contains("noexec"));
+            assertEquals(Path.of("/mnt/with space"), mounts.get(2).point());
+        }
+    }
+
+    @Nested
+    class IsUsable {
+
+        @Test
+        void ramFileSystem() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test").toRealPath();
+            List<MemoryDirectory.Mount> mounts = List.of(
+                    new MemoryDirectory.Mount(Path.of("/"), "ext4", Set.of("rw")),
+                    new MemoryDirectory.Mount(folder, "tmpfs", Set.of("rw")));
+            assertTrue(MemoryDirectory.isUsable(folder, mounts, 0));
+        }
+
+        @Test
+        void noExec() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test").toRealPath();
+            List<MemoryDirectory.Mount> mounts = List.of(new MemoryDirectory.Mount(folder, "tmpfs", Set.of("rw", "noexec")));
+            assertFalse(MemoryDirectory.isUsable(folder, mounts, 0));
+        }
+
+        @Test
+        void diskFileSystem() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test").toRealPath();
+            List<MemoryDirectory.Mount> mounts = List.of(
+                    new MemoryDirectory.Mount(folder.getParent(), "tmpfs", Set.of("rw")),
+                    new MemoryDirectory.Mount(folder, "ext4", Set.of("rw")));
+            assertFalse(MemoryDirectory.isUsable(folder, mounts, 0));
+        }
+
+        @Test
+        void notEnoughSpace() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test").toRealPath();
+            List<MemoryDirectory.Mount> mounts = List.of(new MemoryDirectory.Mount(folder, "tmpfs", Set.of("rw")));
+            assertFalse(MemoryDirectory.isUsable(folder, mounts, Long.MAX_VALUE));
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+class NativeExtractorTest {
+
+    /**
+     * Directory holding the files created by a test, deleted once it completes.
+     */
+    @TempDir
+    Path temp;
+
+    @Nested
+    class Extract {
+
+        @Test
+        void happyFlow() throws IOException {
+            Path source = Files.createTempDirectory(temp, "source");
+            Path destination = Files.createTempDirectory(temp, "destination");
+            Files.writeString(source.resolve("lib_one.so"), "one");
+            Files.createDirectories(source.resolve("sub"));
+            Files.writeString(source.resolve("sub").resolve("lib_two.so"), "two");
+            new NativeExtractor(destination).extract(source);
+            assertEquals("one", Files.readString(destination.resolve("lib_one.so")));
+            assertEquals("two", Files.readString(destination.resolve("sub").resolve("lib_two.so")));
+            assertTrue(Files.exists(destination.resolve(ExtractionCache.INDEX_FILE)));
+        }
+
+        @Test
+        void manyFiles() throws IOException {
+            Path source = Files.createTempDirectory(temp, "source");
+            Path destination = Files.createTempDirectory(temp, "destination");
+            for (int i = 0; i < 50; i++) {
+                Files.writeString(source.resolve("lib_" + i + ".so"), "content " + i);
+            }
+            new NativeExtractor(destination).extract(source);
+            for (int i = 0; i < 50; i++) {
+                assertEquals("content " + i, Files.readString(destination.resolve("lib_" + i + ".so")));
+            }
+        }
+
+        @Test
+        void compressed() throws IOException {
+            Path source = Files.createTempDirectory(temp, "source");
+            Path destination = Files.createTempDirectory(temp, "destination");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(source.resolve("lib_one.so.gz")))) {
+                out.write("decompressed".getBytes(StandardCharsets.UTF_8));
+            }
+            new NativeExtractor(destination).extract(source);
+            Path extracted = destination.resolve("lib_one.so");
+            assertEquals("decompressed", Files.readString(extracted));
+            assertFalse(Files.exists(destination.resolve("lib_one.so.gz")));
+            FileTime time = Files.getLastModifiedTime(extracted);
+            new NativeExtractor(destination).extract(source);
+            assertEquals(time, Files.getLastModifiedTime(extracted));
+        }
+
+        @Test
+        void concurrentExtractions() throws Exception {
+            Path source = Files.createTempDirectory(temp, "source");
+            Path destination = Files.createTempDirectory(temp, "destination");
+            for (int i = 0; i < 10; i++) {
+                Files.writeString(source.resolve("lib_" + i + ".so"), "content " + i);
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                tasks.add(executor.submit(() -> {
+                    new NativeExtractor(destination).extract(source);
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+            executor.shutdown();
+            for (int i = 0; i < 10; i++) {
+                assertEquals("content " + i, Files.readString(destination.resolve("lib_" + i + ".so")));
+            }
+        }
+
+        @Test
+        void hashedWhileCopied() throws IOException {
+            Path source = Files.createTempDirectory(temp, "source");
+            Path destination = Files.createTempDirectory(temp, "destination");
+            Path plain = Files.writeString(source.resolve("lib_one.so"), "one");
+            Path compressed = source.resolve("lib_two.so.gz");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+                out.write("two".getBytes(StandardCharsets.UTF_8));
+            }
+            new NativeExtractor(destination).extract(source);
+            ExtractionCache cache = ExtractionCache.load(destination);
+            assertTrue(cache.isUpToDate("lib_one.so", Files.size(plain), ContentHash.of(plain)));
+            assertTrue(cache.isUpToDate("lib_two.so", Files.size(compressed), ContentHash.of(compressed)));
+        }
+
+        @Test
+        void sameSizeModifiedSourceCopiedAgain() throws IOException {
+            Path source = Files.createTempDirectory(temp, "source");
+            Path destination = Files.createTempDirectory(temp, "destination");
+            Files.writeString(source.resolve("lib_one.so"), "one");
+            new NativeExtractor(destination).extract(source);
+            Files.writeString(source.resolve("lib_one.so"), "two");
+            new NativeExtractor(destination).extract(source);
+            assertEquals("two", Files.readString(destination.resolve("lib_one.so")));
+        }
+
+        @Test
+        void upToDateNotCopiedAgain() throws IOException {
+            Path source = Files.createTempDirectory(temp, "source");
+            Path destination = Files.createTempDirectory(temp, "destination");
+            Files.writeString(source.resolve("lib_one.so"), "one");
+            new NativeExtractor(destination).extract(source);
+            Path extracted = destination.resolve("lib_one.so");
+            FileTime time = Files.getLastModifiedTime(extracted);
+            new NativeExtractor(destination).extract(source);
+            assertEquals(time, Files.getLastModifiedTime(extracted));
+        }
+
+        @Test
+        void modifiedSourceCopiedAgain() throws IOException {
+            Path source = Files.createTempDirectory(temp, "source");
+            Path destination = Files.createTempDirectory(temp, "destination");
+            Files.writeString(source.resolve("lib_one.so"), "one");
+            new NativeExtractor(destination).extract(source);
+            Files.writeString(source.resolve("lib_one.so"), "changed");
+            new NativeExtractor(destination).extract(source);
+            assertEquals("changed", Files.readString(destination.resolve("lib_one.so")));
+        }
+
+        @Test
+        void alteredDestinationCopiedAgain() throws IOException {
+            Path source = Files.createTempDirectory(temp, "source");
+            Path destination = Files.createTempDirectory(temp, "destination");
+            Files.writeString(source.resolve("lib_one.so"), "one");
+            new NativeExtractor(destination).extract(source);
+            Files.writeString(destination.resolve("lib_one.so"), "half");
+            new NativeExtractor(destination).extract(source);
+            assertEquals("one", Files.readString(destination.resolve("lib_one.so")));
+        }
+
+        @Test
+        void staleManifestRemoved() throws IOException {
+            Path source = Files.createTempDirectory(temp, "source");
+            Path destination = Files.createTempDirectory(temp, "destination");
+            Files.writeString(source.resolve("lib_one.so"), "one");
+            NativeManifestGenerator.generate(source);
+            new NativeExtractor(destination).extract(source);
+            assertTrue(Files.exists(destination.resolve(NativeManifest.FILE_NAME)));
+            Files.delete(source.resolve(NativeManifest.FILE_NAME));
+            new NativeExtractor(destination).extract(source);
+            assertFalse(Files.exists(destination.resolve(NativeManifest.FILE_NAME)));
+        }
+
+        @Test
+        void manifestReplaced() throws IOException {
+            Path source = Files.createTempDirectory(temp, "source");
+            Path destination = Files.createTempDirectory(temp, "destination");
+            Files.writeString(source.resolve("lib_one.so"), "one");
+            NativeManifestGenerator.generate(source);
+            new NativeExtractor(destination).extract(source);
+            Files.writeString(source.resolve("lib_two.so"), "two");
+            NativeManifestGenerator.generate(source);
+            new NativeExtractor(destination).extract(source);
+            assertEquals(Files.readString(source.resolve(NativeManifest.FILE_NAME)), Files.readString(destination.resolve(NativeManifest.FILE_NAME)));
+        }
+    }
+
+    @Nested
+    class ExtractFromClasspath {
+
+        @Test
+        void mergedSources() throws IOException {
+            Path first = jar(Map.of("natives-merge/lib_one.so", "one", "natives-merge/lib_same.so", "same", "natives-merge/lib_conflict.so", "first"));
+            Path second = jar(Map.of("natives-merge/lib_two.so", "two", "natives-merge/lib_same.so", "same", "natives-merge/lib_conflict.so", "second"));
+            Path destination = Files.createTempDirectory(temp, "destination");
+            ClassLoader previous = Thread.currentThread().getContextClassLoader();
+            try (URLClassLoader loader = new URLClassLoader(new URL[]{first.toUri().toURL(), second.toUri().toURL()}, previous)) {
+                Thread.currentThread().setContextClassLoader(loader);
+                List<NativeConflict> conflicts = new NativeExtractor(destination).extractFromClasspath("natives-merge");
+                assertEquals("one", Files.readString(destination.resolve("lib_one.so")));
+                assertEquals("two", Files.readString(destination.resolve("lib_two.so")));
+                assertEquals("same", Files.readString(destination.resolve("lib_same.so")));
+                assertEquals("first", Files.readString(destination.resolve("lib_conflict.so")));
+                assertEquals(1, conflicts.size());
+                assertEquals("lib_conflict.so", conflicts.get(0).name());
+                assertEquals(2, conflicts.get(0).locations().size());
+            } finally {
+                Thread.currentThread().setContextClassLoader(previous);
+            }
+        }
+
+        @Test
+        void concurrentExtractions() throws Exception {
+            Path jar = jar(Map.of("natives-merge/lib_one.so", "one", "natives-merge/lib_two.so", "two"));
+            ClassLoader previous = Thread.currentThread().getContextClassLoader();
+            try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, previous)) {
+                Thread.currentThread().setContextClassLoader(loader);
+                List<Throwable> errors = new CopyOnWriteArrayList<>();
+                List<Thread> threads = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    threads.add(Thread.ofPlatform().start(() -> {
+                        for (int j = 0; j < 10; j++) {
+                            try {
+                                Path destination = Files.createTempDirectory(temp, "destination");
+                                new NativeExtractor(destination).extractFromClasspath("natives-merge");
+                                assertEquals("two", Files.readString(destination.resolve("lib_two.so")));
+                            } catch (Throwable e) {
+                                errors.add(e);
+                            }
+                        }
+                    }));
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                assertEquals(List.of(), errors);
+            } finally {
+                Thread.currentThread().setContextClassLoader(previous);
+            }
+        }
+
+        @Test
+        void extractedAgainOnNextCall() throws IOException {
+            Path jar = jar(Map.of("natives-merge/lib_one.so", "one"));
+            Path destination = Files.createTempDirectory(temp, "destination");
+            ClassLoader previous = Thread.currentThread().getContextClassLoader();
+            try (URLClassLoader loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, previous)) {
+                Thread.currentThread().setContextClassLoader(loader);
+                new NativeExtractor(destination).extractFromClasspath("natives-merge");
+                Files.delete(destination.resolve("lib_one.so"));
+                new NativeExtractor(destination).extractFromClasspath("natives-merge");
+                assertEquals("one", Files.readString(destination.resolve("lib_one.so")));
+            } finally {
+                Thread.currentThread().setContextClassLoader(previous);
+            }
+        }
+
+        @Test
+        void notFound() throws IOException {
+            Path destination = Files.createTempDirectory(temp, "destination");
+            assertThrows(IllegalStateException.class, () -> new NativeExtractor(destination).extractFromClasspath("natives-missing"));
+        }
+
+        private Path jar(Map<String, String> entries) throws IOException {
+            Path jar = Files.createTempFile(temp, "natives", ".jar");
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+                out.putNextEntry(new ZipEntry("natives-merge/"));
+                out.closeEntry();
+                for (Map.Entry<String, String> entry : new TreeMap<>(entries).entrySet()) {
+                    out.putNextEntry(new ZipEntry(entry.getKey()));
+                    out.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                    out.closeEntry();
+                }
+            }
+            return jar;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+class NativeManifestTest {
+
+    /**
+     * Directory holding the files created by a test, deleted once it completes.
+     */
+    @TempDir
+    Path temp;
+
+    @Nested
+    class Read {
+
+        @Test
+        void happyFlow() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Files.writeString(folder.resolve("lib_one.so"), "one");
+            Files.createDirectories(folder.resolve("sub"));
+            Files.writeString(folder.resolve("sub").resolve("lib_two.so"), "two");
+            NativeManifestGenerator.generate(folder);
+            List<NativeManifest.Entry> entries = NativeManifest.read(folder).orElseThrow().getEntries();
+            assertEquals(2, entries.size());
+            assertEquals("lib_one.so", entries.get(0).name());
+            assertEquals(3, entries.get(0).size());
+            assertEquals(ContentHash.of(folder.resolve("lib_one.so")), entries.get(0).hash());
+            assertEquals("sub/lib_two.so", entries.get(1).name());
+        }
+
+        @Test
+        void noManifest() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            assertTrue(NativeManifest.read(folder).isEmpty());
+        }
+
+        @Test
+        void invalidManifest() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Files.writeString(folder.resolve(NativeManifest.FILE_NAME), "invalid");
+            assertThrows(IOException.class, () -> NativeManifest.read(folder));
+        }
+    }
+}
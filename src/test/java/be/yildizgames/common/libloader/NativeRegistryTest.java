@@ -0,0 +1,408 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+class NativeRegistryTest {
+
+    /**
+     * Directory holding the files created by a test, deleted once it completes.
+     */
+    @TempDir
+    Path temp;
+
+    @Nested
+    class Resolve {
+
+        @Test
+        void registered() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path lib = Files.createFile(folder.resolve("lib_one.so"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertEquals(Optional.of(lib.toAbsolutePath().toString()), registry.resolve("lib_one"));
+            assertEquals(Optional.of(lib.toAbsolutePath().toString()), registry.resolve("lib_one.so"));
+        }
+
+        @Test
+        void notRegistered() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertTrue(registry.resolve("lib_one").isEmpty());
+        }
+
+        @Test
+        void missIsMemoized() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertTrue(registry.resolve("lib_one").isEmpty());
+            Files.createFile(folder.resolve("lib_one.so"));
+            assertTrue(registry.resolve("lib_one").isEmpty());
+        }
+
+        @Test
+        void directoryReadOnFirstLookup() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            Path lib = Files.createFile(folder.resolve("lib_one.so"));
+            assertEquals(Optional.of(lib.toAbsolutePath().toString()), registry.resolve("lib_one"));
+        }
+    }
+
+    @Nested
+    class Refresh {
+
+        @Test
+        void happyFlow() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertTrue(registry.resolve("lib_one").isEmpty());
+            Path lib = Files.createFile(folder.resolve("lib_one.so"));
+            registry.refresh();
+            assertEquals(Optional.of(lib.toAbsolutePath().toString()), registry.resolve("lib_one"));
+        }
+
+        @Test
+        void concurrentResolve() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Files.createFile(folder.resolve("lib_one.so"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> runConcurrently(
+                    i -> registry.refresh(),
+                    i -> registry.resolve("lib_" + i),
+                    i -> registry.resolve("lib_" + (i + 1)),
+                    i -> registry.resolve("lib_two", String.valueOf(i))));
+            assertTrue(registry.resolve("lib_one").isPresent());
+        }
+    }
+
+    @Nested
+    class Variants {
+
+        @Test
+        void fastestUsableVariant() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Files.createFile(folder.resolve("lib_one.so"));
+            Files.createFile(Files.createDirectory(folder.resolve("sse4")).resolve("lib_one.so"));
+            Path avx2 = Files.createFile(Files.createDirectory(folder.resolve("avx2")).resolve("lib_one.so"));
+            Files.createFile(Files.createDirectory(folder.resolve("avx512")).resolve("lib_one.so"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so", new LoaderMetrics(), List.of(CpuVariant.AVX2, CpuVariant.SSE4));
+            assertEquals(Optional.of(avx2.toAbsolutePath().toString()), registry.resolve("lib_one"));
+        }
+
+        @Test
+        void baseWhenNoVariantUsable() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path base = Files.createFile(folder.resolve("lib_one.so"));
+            Files.createFile(Files.createDirectory(folder.resolve("avx2")).resolve("lib_one.so"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so", new LoaderMetrics(), List.of());
+            assertEquals(Optional.of(base.toAbsolutePath().toString()), registry.resolve("lib_one"));
+        }
+
+        @Test
+        void variantOnly() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Files.createFile(Files.createDirectory(folder.resolve("avx2")).resolve("lib_one.so"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so", new LoaderMetrics(), List.of(CpuVariant.SSE4));
+            assertTrue(registry.resolve("lib_one").isEmpty());
+        }
+    }
+
+    @Nested
+    class Rejected {
+
+        private final Path libJava = Path.of(System.getProperty("java.home"), "lib", "libjava.so");
+
+        @Test
+        void compatible() throws IOException {
+            assumeTrue(Files.exists(this.libJava));
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path lib = Files.copy(this.libJava, folder.resolve("lib_one.so"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertEquals(Optional.of(lib.toAbsolutePath().toString()), registry.resolve("lib_one"));
+            assertTrue(registry.getRejected().isEmpty());
+        }
+
+        @Test
+        void truncated() throws IOException {
+            assumeTrue(Files.exists(this.libJava));
+            Path folder = Files.createTempDirectory(temp, "test");
+            byte[] content = Files.readAllBytes(this.libJava);
+            Path lib = Files.write(folder.resolve("lib_one.so"), Arrays.copyOf(content, content.length / 2));
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertTrue(registry.resolve("lib_one").isEmpty());
+            assertEquals(1, registry.getRejected().size());
+            assertEquals(lib.toAbsolutePath().toString(), registry.getRejected().get(0).path());
+        }
+
+        @Test
+        void largerThanTwoGigabytes() throws IOException {
+            assumeTrue(Files.exists(this.libJava));
+            Path folder = Files.createTempDirectory(temp, "test");
+            assumeTrue(allocated(temp.resolve("sparse.probe"), 256L << 20) < 128L << 20, "Sparse files are not supported.");
+            Path lib = Files.copy(this.libJava, folder.resolve("lib_one.so"));
+            assumeTrue(allocated(lib, 3L * Integer.MAX_VALUE) < 1L << 30, "Sparse files are not supported.");
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertEquals(Optional.of(lib.toAbsolutePath().toString()), registry.resolve("lib_one"));
+            assertTrue(registry.getRejected().isEmpty());
+            Files.delete(lib);
+        }
+
+        /**
+         * Extend a file, created if needed, by writing a single byte far after its end, the file system allocates the
+         * hole only if it does not support sparse files.
+         *
+         * @param file File to extend.
+         * @param position Position of the written byte.
+         * @return The disk space allocated by the write, in bytes.
+         */
+        private long allocated(Path file, long position) throws IOException {
+            FileStore store = Files.getFileStore(file.getParent());
+            long free = store.getUnallocatedSpace();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+                channel.write(ByteBuffer.wrap(new byte[]{0}), position);
+                channel.force(true);
+            }
+            return free - store.getUnallocatedSpace();
+        }
+
+        @Test
+        void otherMachine() throws IOException {
+            assumeTrue(Files.exists(this.libJava));
+            Path folder = Files.createTempDirectory(temp, "test");
+            byte[] content = Files.readAllBytes(this.libJava);
+            ByteBuffer.wrap(content).order(ByteOrder.nativeOrder()).putShort(18, (short) 0x1234);
+            Files.write(folder.resolve("lib_one.so"), content);
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertTrue(registry.resolve("lib_one").isEmpty());
+            assertEquals("lib_one.so", registry.getRejected().get(0).name());
+        }
+
+        @Test
+        void fallbackToBaseWhenVariantRejected() throws IOException {
+            assumeTrue(Files.exists(this.libJava));
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path base = Files.copy(this.libJava, folder.resolve("lib_one.so"));
+            Files.write(Files.createDirectory(folder.resolve("avx2")).resolve("lib_one.so"), new byte[]{0x7F, 'E', 'L', 'F'});
+            NativeRegistry registry = new NativeRegistry(folder, ".so", new LoaderMetrics(), List.of(CpuVariant.AVX2));
+            assertEquals(Optional.of(base.toAbsolutePath().toString()), registry.resolve("lib_one"));
+            assertEquals(1, registry.getRejected().size());
+        }
+
+        @Test
+        void notElf() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path lib = Files.writeString(folder.resolve("lib_one.so"), "INPUT(libc.so.6)");
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertEquals(Optional.of(lib.toAbsolutePath().toString()), registry.resolve("lib_one"));
+            assertTrue(registry.getRejected().isEmpty());
+        }
+    }
+
+    @Nested
+    class Update {
+
+        @Test
+        void added() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertTrue(registry.resolve("lib_one").isEmpty());
+            Path lib = Files.createFile(folder.resolve("lib_one.so"));
+            registry.update(List.of(lib));
+            assertEquals(Optional.of(lib.toAbsolutePath().toString()), registry.resolve("lib_one"));
+        }
+
+        @Test
+        void removed() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path lib = Files.createFile(folder.resolve("lib_one.so"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertTrue(registry.resolve("lib_one").isPresent());
+            Files.delete(lib);
+            registry.update(List.of(lib));
+            assertTrue(registry.resolve("lib_one").isEmpty());
+            assertTrue(registry.getLibraries().isEmpty());
+        }
+
+        @Test
+        void directoryRemoved() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path sub = Files.createDirectory(folder.resolve("sub"));
+            Path lib = Files.createFile(sub.resolve("lib_one.so"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertTrue(registry.resolve("lib_one").isPresent());
+            Files.delete(lib);
+            Files.delete(sub);
+            registry.update(List.of(sub));
+            assertTrue(registry.resolve("lib_one").isEmpty());
+        }
+
+        @Test
+        void fasterVariantAdded() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path base = Files.createFile(folder.resolve("lib_one.so"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so", new LoaderMetrics(), List.of(CpuVariant.AVX2));
+            assertEquals(Optional.of(base.toAbsolutePath().toString()), registry.resolve("lib_one"));
+            Path avx2 = Files.createFile(Files.createDirectory(folder.resolve("avx2")).resolve("lib_one.so"));
+            registry.update(List.of(avx2));
+            assertEquals(Optional.of(avx2.toAbsolutePath().toString()), registry.resolve("lib_one"));
+            Files.delete(avx2);
+            registry.update(List.of(avx2));
+            assertEquals(Optional.of(base.toAbsolutePath().toString()), registry.resolve("lib_one"));
+        }
+
+        @Test
+        void listedInManifestButMissing() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path removed = Files.createFile(folder.resolve("lib_one.so"));
+            NativeManifestGenerator.generate(folder);
+            Files.delete(removed);
+            Path added = Files.createFile(folder.resolve("lib_two.so"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertTrue(registry.resolve("lib_one").isEmpty());
+            assertEquals(Optional.of(added.toAbsolutePath().toString()), registry.resolve("lib_two"));
+        }
+
+        @Test
+        void addedNotInManifest() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path listed = Files.createFile(folder.resolve("lib_one.so"));
+            NativeManifestGenerator.generate(folder);
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertTrue(registry.resolve("lib_one").isPresent());
+            Path added = Files.createFile(folder.resolve("lib_two.so"));
+            registry.update(List.of(added, listed));
+            assertEquals(Optional.of(added.toAbsolutePath().toString()), registry.resolve("lib_two"));
+            assertEquals(Optional.of(listed.toAbsolutePath().toString()), registry.resolve("lib_one"));
+        }
+
+        @Test
+        void concurrentResolve() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path lib = Files.createFile(folder.resolve("lib_one.so"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertTrue(registry.resolve("lib_one").isPresent());
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> runConcurrently(
+                    i -> registry.update(List.of(lib)),
+                    i -> registry.resolve("lib_" + i),
+                    i -> registry.resolve("lib_" + (i + 1)),
+                    i -> registry.resolve("lib_two", String.valueOf(i))));
+            assertEquals(Optional.of(lib.toAbsolutePath().toString()), registry.resolve("lib_one"));
+        }
+    }
+
+    @Nested
+    class Versions {
+
+        @Test
+        void happyFlow() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test").toRealPath();
+            Path v123 = Files.createFile(folder.resolve("libfoo.so.1.2.3"));
+            Path v1100 = Files.createFile(folder.resolve("libfoo.so.1.10.0"));
+            Path v200 = Files.createFile(folder.resolve("libfoo.so.2.0.0"));
+            Files.createSymbolicLink(folder.resolve("libfoo.so.1"), v1100.getFileName());
+            Files.createSymbolicLink(folder.resolve("libfoo.so"), v200.getFileName());
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertEquals(Optional.of(v200.toString()), registry.resolve("foo"));
+            assertEquals(Optional.of(v200.toString()), registry.resolve("libfoo"));
+            assertEquals(Optional.of(v1100.toString()), registry.resolve("libfoo.so.1"));
+            assertEquals(Optional.of(v1100.toString()), registry.resolve("foo", "1"));
+            assertEquals(Optional.of(v123.toString()), registry.resolve("libfoo", "1.2"));
+            assertEquals(Optional.of(v200.toString()), registry.resolve("foo", null));
+            assertTrue(registry.resolve("foo", "3").isEmpty());
+        }
+
+        @Test
+        void invalidVersion() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Files.createFile(folder.resolve("libfoo.so.1"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertThrows(IllegalArgumentException.class, () -> registry.resolve("foo", "one"));
+        }
+
+        @Test
+        void longVersion() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test").toRealPath();
+            Path dated = Files.createFile(folder.resolve("libfoo.so.20240101123456"));
+            Files.createFile(folder.resolve("libfoo.so.123456789012345678901234567890"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertEquals(Optional.of(dated.toString()), registry.resolve("foo"));
+            assertEquals(Optional.of(dated.toString()), registry.resolve("foo", "20240101123456"));
+        }
+
+        @Test
+        void soname() throws IOException {
+            Optional<Path> libC = Stream.of("/lib/x86_64-linux-gnu/libc.so.6", "/lib/aarch64-linux-gnu/libc.so.6", "/lib64/libc.so.6")
+                    .map(Path::of)
+                    .filter(Files::exists)
+                    .findFirst();
+            assumeTrue(libC.isPresent());
+            Path folder = Files.createTempDirectory(temp, "test").toRealPath();
+            Path renamed = Files.copy(libC.get(), folder.resolve("libcustom.so.6.1"));
+            NativeRegistry registry = new NativeRegistry(folder, ".so");
+            assertEquals(Optional.of(renamed.toString()), registry.resolve("c", "6"));
+            assertEquals(Optional.of(renamed.toString()), registry.resolve("libc"));
+        }
+    }
+
+    /**
+     * Run each task 20000 times in its own thread, with an increasing index, and wait for all of them.
+     */
+    static void runConcurrently(final IntConsumer... tasks) throws InterruptedException {
+        List<Thread> threads = Arrays.stream(tasks)
+                .map(t -> Thread.ofPlatform().start(() -> IntStream.range(0, 20000).forEach(t)))
+                .toList();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
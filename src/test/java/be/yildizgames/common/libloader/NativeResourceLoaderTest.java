@@ -31,11 +31,28 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 /**
  * @author Grégory Van den Borre
@@ -73,6 +90,19 @@ class NativeResourceLoaderTest {
             Files.delete(folder);
         }
 
+        @Test
+        void withManifest() throws IOException {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            Path libs = Files.createDirectories(folder.resolve(nrl.directory));
+            Path lib = Files.createFile(libs.resolve("lib_manifest" + nrl.libraryExtension));
+            NativeManifestGenerator.generate(libs);
+            Files.createFile(libs.resolve("lib_unlisted" + nrl.libraryExtension));
+            NativeResourceLoader fromManifest = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            assertEquals(lib.toAbsolutePath().toString(), fromManifest.getLibPath("lib_manifest"));
+            assertThrows(IllegalStateException.class, () -> fromManifest.getLibPath("lib_unlisted"));
+        }
+
         @Test
         void withNullFilePath() throws IOException {
             Path folder = Files.createTempDirectory("test");
@@ -111,6 +141,279 @@ class NativeResourceLoaderTest {
         }
     }
     
+    @Nested
+    class LoadLibraryAsync {
+
+        private final OperatingSystem[] systems = OperatingSystems.getAll();
+
+        @Test
+        void notFound() throws IOException {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            CompletionException e = assertThrows(CompletionException.class, () -> nrl.loadLibraryAsync("lib").join());
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            Files.delete(folder);
+        }
+
+        @Test
+        void withExecutor() throws IOException {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            Path invalid = writeInvalidLibrary(folder, nrl);
+            String lib = invalid.toAbsolutePath().toString();
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            CompletionException e = assertThrows(CompletionException.class, () -> nrl.loadLibraryAsync(executor, lib).join());
+            assertTrue(e.getCause() instanceof UnsatisfiedLinkError);
+            executor.shutdown();
+            Files.delete(invalid);
+            Files.delete(folder);
+        }
+    }
+
+    @Nested
+    class OpenLibrary {
+
+        private final OperatingSystem[] systems = OperatingSystems.getAll();
+
+        @Test
+        void happyFlow() throws IOException {
+            Path libJava = Path.of(System.getProperty("java.home"), "lib", "libjava.so");
+            assumeTrue(Files.exists(libJava));
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            NativeLibrary library = nrl.openLibrary(libJava.toString());
+            assertTrue(library.isOpen());
+            assertTrue(library.find("JNU_NewStringPlatform").isPresent());
+            assertTrue(library.find("not_existing_symbol").isEmpty());
+            library.close();
+            assertFalse(library.isOpen());
+            Files.delete(folder);
+        }
+
+        @Test
+        void withArena() throws IOException {
+            Path libJava = Path.of(System.getProperty("java.home"), "lib", "libjava.so");
+            assumeTrue(Files.exists(libJava));
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            try (Arena arena = Arena.ofConfined()) {
+                NativeLibrary library = nrl.openLibrary(libJava.toString(), arena);
+                library.close();
+                assertTrue(library.isOpen());
+            }
+            Files.delete(folder);
+        }
+
+        @Test
+        void invalidLibrary() throws IOException {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            Path invalid = writeInvalidLibrary(folder, nrl);
+            String lib = invalid.toAbsolutePath().toString();
+            assertThrows(IllegalArgumentException.class, () -> nrl.openLibrary(lib));
+            Files.delete(invalid);
+            Files.delete(folder);
+        }
+
+        @Test
+        void downcall() throws Throwable {
+            Path folder = Files.createTempDirectory("test");
+            Path libC = linkLibC(folder);
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            try (NativeLibrary library = nrl.openLibrary(libC.toString())) {
+                FunctionDescriptor descriptor = FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT);
+                MethodHandle abs = library.downcall("abs", descriptor);
+                assertSame(abs, library.downcall("abs", descriptor));
+                assertEquals(5, (int) abs.invokeExact(-5));
+                assertThrows(IllegalStateException.class, () -> library.downcall("not_existing_symbol", descriptor));
+            }
+            Files.delete(libC);
+            Files.delete(folder);
+        }
+
+        @Test
+        void bind() throws IOException {
+            Path folder = Files.createTempDirectory("test");
+            Path libC = linkLibC(folder);
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            try (NativeLibrary library = nrl.openLibrary(libC.toString())) {
+                LibC libc = library.bind(LibC.class);
+                assertEquals(5, libc.abs(-5));
+                assertEquals(7L, libc.absolute(-7L));
+                assertEquals(10, libc.twice(-5));
+                assertThrows(IllegalStateException.class, () -> library.bind(Missing.class));
+                assertThrows(IllegalArgumentException.class, () -> library.bind(String.class));
+            }
+            Files.delete(libC);
+            Files.delete(folder);
+        }
+
+        @Test
+        void bindingModes() throws Throwable {
+            Path folder = Files.createTempDirectory("test");
+            Path libC = linkLibC(folder);
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            try (NativeLibrary library = nrl.openLibrary(libC.toString(), BindingMode.LAZY, BindingMode.GLOBAL)) {
+                MethodHandle abs = library.downcall("abs", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+                assertEquals(5, (int) abs.invokeExact(-5));
+                assertTrue(library.find("not_existing_symbol").isEmpty());
+                library.close();
+                assertFalse(library.isOpen());
+            }
+            Files.delete(libC);
+            Files.delete(folder);
+        }
+
+        @Test
+        void bindingModesInvalidLibrary() throws IOException {
+            Path folder = Files.createTempDirectory("test");
+            assumeTrue(System.getProperty("os.name").startsWith("Linux"));
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            Path invalid = writeInvalidLibrary(folder, nrl);
+            String lib = invalid.toAbsolutePath().toString();
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> nrl.openLibrary(lib, BindingMode.NOW));
+            assertTrue(e.getMessage().startsWith("Cannot open " + lib + ": "));
+            assertThrows(IllegalStateException.class, () -> nrl.openLibrary(lib, BindingMode.NOW, BindingMode.GLOBAL, BindingMode.NOW));
+            assertThrows(IllegalArgumentException.class, () -> nrl.openLibrary(lib, BindingMode.GLOBAL));
+            assertThrows(IllegalArgumentException.class, () -> nrl.openLibrary(lib, BindingMode.LAZY, BindingMode.NOW));
+            Files.delete(invalid);
+            Files.delete(folder);
+        }
+
+        /**
+         * Link the already loaded C library with the extension expected by the loader.
+         */
+        private Path linkLibC(Path folder) throws IOException {
+            Optional<Path> libC = Stream.of("/lib/x86_64-linux-gnu/libc.so.6", "/lib/aarch64-linux-gnu/libc.so.6", "/lib64/libc.so.6")
+                    .map(Path::of)
+                    .filter(Files::exists)
+                    .findFirst();
+            assumeTrue(libC.isPresent());
+            return Files.createSymbolicLink(folder.resolve("libc.so"), libC.get());
+        }
+    }
+
+    public interface LibC {
+
+        int abs(int value);
+
+        @NativeSymbol("labs")
+        long absolute(long value);
+
+        default int twice(int value) {
+            return this.abs(value) * 2;
+        }
+    }
+
+    public interface Missing {
+
+        void not_existing_symbol();
+    }
+
+    @Nested
+    class Watch {
+
+        private final OperatingSystem[] systems = OperatingSystems.getAll();
+
+        @Test
+        void libraryAdded() throws IOException, InterruptedException {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            Path directory = Files.createDirectories(nrl.libDirectory.resolve(nrl.directory));
+            assertThrows(IllegalStateException.class, () -> nrl.getLibPath("lib_one"));
+            try (LibraryWatcher watcher = nrl.watch(Duration.ofMillis(10))) {
+                assertTrue(watcher.isRunning());
+                Path lib = Files.createFile(Files.createDirectory(directory.resolve("sub")).resolve("lib_one" + nrl.libraryExtension));
+                long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+                while (!this.isRegistered(nrl, "lib_one") && System.nanoTime() < deadline) {
+                    Thread.sleep(20);
+                }
+                assertEquals(lib.toAbsolutePath().toString(), nrl.getLibPath("lib_one"));
+            }
+        }
+
+        private boolean isRegistered(NativeResourceLoader nrl, String lib) {
+            try {
+                nrl.getLibPath(lib);
+                return true;
+            } catch (IllegalStateException e) {
+                return false;
+            }
+        }
+    }
+
+    @Nested
+    class GetLoadedLibraries {
+
+        private final OperatingSystem[] systems = OperatingSystems.getAll();
+
+        @Test
+        void noneLoaded() throws IOException {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            assertTrue(nrl.getLoadedLibraries().isEmpty());
+            Files.delete(folder);
+        }
+
+        @Test
+        void failedLoadNotRecorded() throws IOException {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            Path invalid = writeInvalidLibrary(folder, nrl);
+            String lib = invalid.toAbsolutePath().toString();
+            assertThrows(UnsatisfiedLinkError.class, () -> nrl.loadLibrary(lib));
+            assertTrue(nrl.getLoadedLibraryDetails().isEmpty());
+            Files.delete(invalid);
+            Files.delete(folder);
+        }
+    }
+
+    @Nested
+    class AddListener {
+
+        private final OperatingSystem[] systems = OperatingSystems.getAll();
+
+        @Test
+        void happyFlow() throws IOException {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            List<String> calls = new ArrayList<>();
+            nrl.addListener(new NativeLoaderListener() {
+                @Override
+                public void onRegistration(Path directory, int scanned, int registered, Duration duration) {
+                    calls.add("registration");
+                }
+
+                @Override
+                public void onLoad(String path, Duration duration, Throwable error) {
+                    calls.add(error == null ? "loaded" : "failed");
+                }
+            });
+            assertThrows(IllegalStateException.class, () -> nrl.getLibPath("lib_missing"));
+            Path invalid = writeInvalidLibrary(folder, nrl);
+            String lib = invalid.toAbsolutePath().toString();
+            assertThrows(UnsatisfiedLinkError.class, () -> nrl.loadLibrary(lib));
+            assertEquals(List.of("registration", "failed"), calls);
+            Files.delete(invalid);
+            Files.delete(folder);
+        }
+
+        @Test
+        void withNull() throws IOException {
+            Path folder = Files.createTempDirectory("test");
+            NativeResourceLoader nrl = NativeResourceLoader.inPath(folder.toAbsolutePath().toFile().getAbsolutePath(), this.systems);
+            assertThrows(NullPointerException.class, () -> nrl.addListener(null));
+            Files.delete(folder);
+        }
+    }
+
+    /**
+     * Write a file with a library name but no library content, as the test resources only ship Windows libraries.
+     */
+    private static Path writeInvalidLibrary(Path folder, NativeResourceLoader nrl) throws IOException {
+        return Files.write(folder.resolve("lib_one" + nrl.libraryExtension), "not a library".getBytes(StandardCharsets.UTF_8));
+    }
+
     private static File getFile(String name) {
         return new File(NativeResourceLoader.class.getClassLoader().getResource(name).getFile()).getAbsoluteFile();
     }
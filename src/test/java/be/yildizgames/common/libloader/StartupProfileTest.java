@@ -0,0 +1,135 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.common.libloader;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+class StartupProfileTest {
+
+    /**
+     * Directory holding the files created by a test, deleted once it completes.
+     */
+    @TempDir
+    Path temp;
+
+    @Nested
+    class Record {
+
+        @Test
+        void happyFlow() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path directory = Files.createDirectory(folder.resolve("linux64"));
+            Path file = folder.resolve("linux64" + StartupProfile.EXTENSION);
+            StartupProfile profile = StartupProfile.read(file, directory);
+            assertTrue(profile.getLibraries().isEmpty());
+            profile.record(directory.resolve("avx2").resolve("lib_one.so").toString());
+            profile.record(directory.resolve("lib_two.so").toString());
+            profile.record("/usr/lib/lib_three.so");
+            profile.save(Runnable::run).join();
+            assertEquals(List.of("avx2/lib_one.so", "lib_two.so", "/usr/lib/lib_three.so"), StartupProfile.read(file, directory).getLibraries());
+        }
+
+        @Test
+        void sameOrderNotWritten() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path file = folder.resolve("linux64" + StartupProfile.EXTENSION);
+            StartupProfile first = StartupProfile.read(file, folder);
+            first.record(folder.resolve("lib_one.so").toString());
+            first.record(folder.resolve("lib_two.so").toString());
+            first.save(Runnable::run).join();
+            Files.writeString(file, Files.readString(file) + "lib_three.so\n");
+            StartupProfile second = StartupProfile.read(file, folder);
+            second.record(folder.resolve("lib_one.so").toString());
+            second.record(folder.resolve("lib_two.so").toString());
+            second.save(Runnable::run).join();
+            assertEquals(List.of("lib_one.so", "lib_two.so", "lib_three.so"), StartupProfile.read(file, folder).getLibraries());
+        }
+
+        @Test
+        void otherOrderWritten() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path file = folder.resolve("linux64" + StartupProfile.EXTENSION);
+            StartupProfile first = StartupProfile.read(file, folder);
+            first.record(folder.resolve("lib_one.so").toString());
+            first.record(folder.resolve("lib_two.so").toString());
+            first.save(Runnable::run).join();
+            StartupProfile second = StartupProfile.read(file, folder);
+            second.record(folder.resolve("lib_two.so").toString());
+            second.save(Runnable::run).join();
+            assertEquals(List.of("lib_two.so"), StartupProfile.read(file, folder).getLibraries());
+        }
+
+        @Test
+        void notWrittenWhileLoading() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path file = folder.resolve("linux64" + StartupProfile.EXTENSION);
+            StartupProfile profile = StartupProfile.read(file, folder);
+            profile.record(folder.resolve("lib_one.so").toString());
+            assertFalse(Files.exists(file));
+            profile.save(Runnable::run).join();
+            assertEquals(List.of("lib_one.so"), StartupProfile.read(file, folder).getLibraries());
+        }
+
+        @Test
+        void invalidFile() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Path file = Files.writeString(folder.resolve("linux64" + StartupProfile.EXTENSION), "lib_one.so\n");
+            assertTrue(StartupProfile.read(file, folder).getLibraries().isEmpty());
+        }
+    }
+
+    @Nested
+    class Prefetch {
+
+        @Test
+        void happyFlow() throws IOException {
+            Path folder = Files.createTempDirectory(temp, "test");
+            Files.writeString(folder.resolve("lib_one.so"), "one");
+            Path file = folder.resolve("linux64" + StartupProfile.EXTENSION);
+            StartupProfile first = StartupProfile.read(file, folder);
+            first.record(folder.resolve("lib_one.so").toString());
+            first.record(folder.resolve("lib_missing.so").toString());
+            first.save(Runnable::run).join();
+            StartupProfile second = StartupProfile.read(file, folder);
+            second.prefetch(ForkJoinPool.commonPool()).join();
+            assertFalse(second.getLibraries().isEmpty());
+        }
+    }
+}